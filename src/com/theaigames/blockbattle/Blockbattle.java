@@ -17,11 +17,16 @@
 
 package com.theaigames.blockbattle;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.theaigames.blockbattle.field.Field;
 import com.theaigames.blockbattle.player.Player;
+import com.theaigames.blockbattle.replay.MoveLog;
+import com.theaigames.blockbattle.replay.ReplayArchive;
+import com.theaigames.blockbattle.replay.ReplayWriter;
 import com.theaigames.engine.io.IOPlayerable;
 import com.theaigames.game.AbstractGame;
 import com.theaigames.game.player.AbstractPlayer;
@@ -34,34 +39,79 @@ public class Blockbattle extends AbstractGame {
 	private final int FIELD_HEIGHT = 20;
 	
 	private List<Player> players;
+	private long seed;
+	private MoveLog moveLog;
+	
+	public Long SEED = Long.getLong("seed"); // seed for all randomness in the game, a new one if null
+	public String REPLAY_FILE = System.getProperty("replay"); // file to write the binary replay to, none if null
+	public String MOVE_LOG_FILE = System.getProperty("movelog"); // file to write the move log to, none if null
+	public String ARCHIVE_DIR = System.getProperty("archive"); // replay archive to add the move log to, none if null
 
 	@Override
 	public void setupGame(ArrayList<IOPlayerable> ioPlayers) throws Exception {
 		
-		System.out.println("Setting up game...");
+		if(VERBOSE)
+			System.out.println("Setting up game...");
 		
 		// set the maximum number of rounds if necessary
 		super.maxRounds = -1;
 		
+		// seed the game, printed so it can be played again
+		GameRandom random = new GameRandom(SEED != null ? SEED : GameRandom.newSeed());
+		this.seed = random.getSeed();
+		if(VERBOSE)
+			System.out.println("Seed: " + this.seed);
+		
 		// create all the players and everything they need
-		this.players = new ArrayList<Player>();
+		this.players = createPlayers(ioPlayers, random, FIELD_WIDTH, FIELD_HEIGHT, TIMEBANK_MAX, TIME_PER_MOVE);
+		
+		// send the settings
+		for(AbstractPlayer player : this.players)
+			sendSettings(player);
+		
+		List<String> playerNames = new ArrayList<String>();
+		for(Player player : this.players)
+			playerNames.add(player.getName());
+		
+		// start the replay
+		ReplayWriter replay = null;
+		if(REPLAY_FILE != null) {
+			replay = ReplayWriter.open(Paths.get(REPLAY_FILE));
+			replay.writeHeader(random.getSeed(), FIELD_WIDTH, FIELD_HEIGHT, TIMEBANK_MAX, TIME_PER_MOVE, playerNames);
+		}
+		
+		// create the processor
+		Processor processor = new Processor(this.players, FIELD_WIDTH, FIELD_HEIGHT, random, replay);
+		processor.setVerbose(VERBOSE);
+		if(MOVE_LOG_FILE != null || ARCHIVE_DIR != null) {
+			this.moveLog = new MoveLog(random.getSeed(), FIELD_WIDTH, FIELD_HEIGHT, TIMEBANK_MAX, TIME_PER_MOVE, playerNames);
+			processor.setMoveLog(this.moveLog);
+		}
+		super.processor = processor;
+	}
+	
+	/**
+	 * Creates the players of a game with their fields. Every field gets its own
+	 * random for garbage lines, split off in player order, so a game set up from
+	 * the same seed always gets the same garbage lines.
+	 * @param ioPlayers : the players' IO, in player order
+	 * @param random : random of the game, the Processor has to be created with it afterwards
+	 * @return : the players
+	 */
+	public static List<Player> createPlayers(List<? extends IOPlayerable> ioPlayers, GameRandom random,
+			int fieldWidth, int fieldHeight, long timebank, long timePerMove) {
+		List<Player> players = new ArrayList<Player>();
 		for(int i=0; i<ioPlayers.size(); i++) {
 			
 			// create the playing field
-			Field field = new Field(FIELD_WIDTH, FIELD_HEIGHT);
+			Field field = new Field(fieldWidth, fieldHeight, random.newGarbageRandom());
 			
 			// create the player
 			String playerName = String.format("player%d", i+1);
-			Player player = new Player(playerName, ioPlayers.get(i), TIMEBANK_MAX, TIME_PER_MOVE, field);
-			this.players.add(player);
+			Player player = new Player(playerName, ioPlayers.get(i), timebank, timePerMove, field);
+			players.add(player);
 		}
-		
-		// send the settings
-		for(AbstractPlayer player : this.players)
-			sendSettings(player);
-		
-		// create the processor
-		super.processor = new Processor(this.players, FIELD_WIDTH, FIELD_HEIGHT);
+		return players;
 	}
 
 	@Override
@@ -85,6 +135,55 @@ public class Blockbattle extends AbstractGame {
 		player.sendSetting("field_height", FIELD_HEIGHT);
 	}
 
+	/**
+	 * @return : the players of the game, null before it was set up
+	 */
+	public List<Player> getPlayers() {
+		return this.players;
+	}
+	
+	/**
+	 * @return : the seed the game was set up with
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+
+	@Override
+	public void finish() throws Exception {
+		
+		// write the move log before the bots are stopped, finishing can exit the program
+		if(MOVE_LOG_FILE != null) {
+			try {
+				this.moveLog.write(Paths.get(MOVE_LOG_FILE));
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		super.finish();
+	}
+
+	/**
+	 * Prints the played game unless VERBOSE is off, and adds the game's move
+	 * log to the archive, if there is one
+	 */
+	@Override
+	public void saveGame() {
+		if(VERBOSE) // the played game goes to stdout as well
+			super.saveGame();
+		
+		if(ARCHIVE_DIR != null) {
+			try {
+				long id = ReplayArchive.open(Paths.get(ARCHIVE_DIR)).append(this.moveLog.toBytes());
+				if(VERBOSE)
+					System.out.println("Archived as game " + id);
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	@Override
 	protected void runEngine() throws Exception {
 		super.engine.setLogic(this);
@@ -0,0 +1,84 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle;
+
+import com.theaigames.blockbattle.field.CellType;
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.FieldView;
+import com.theaigames.blockbattle.field.ShapeType;
+
+/**
+ * BotFieldView class
+ * 
+ * Read-only FieldView of a field that Java bots get. It only forwards
+ * the getters, so a bot can't change the field by casting the view.
+ */
+class BotFieldView implements FieldView {
+	
+	private Field field;
+	
+	BotFieldView(Field field) {
+		this.field = field;
+	}
+	
+	@Override
+	public int getWidth() {
+		return this.field.getWidth();
+	}
+	
+	@Override
+	public int getHeight() {
+		return this.field.getHeight();
+	}
+	
+	@Override
+	public CellType getCellType(int x, int y) {
+		return this.field.getCellType(x, y);
+	}
+	
+	@Override
+	public ShapeType getShapeType(int x, int y) {
+		return this.field.getShapeType(x, y);
+	}
+	
+	@Override
+	public boolean isOccupied(int x, int y) {
+		return this.field.isOccupied(x, y);
+	}
+	
+	@Override
+	public int getRowMask(int y) {
+		return this.field.getRowMask(y);
+	}
+	
+	@Override
+	public int getOccupiedMask(int y) {
+		return this.field.getOccupiedMask(y);
+	}
+	
+	@Override
+	public int getColumnTop(int x) {
+		return this.field.getColumnTop(x);
+	}
+	
+	@Override
+	public long getHash() {
+		return this.field.getHash();
+	}
+}
@@ -0,0 +1,92 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle;
+
+import com.theaigames.blockbattle.bot.GameView;
+import com.theaigames.blockbattle.bot.PlayerView;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.player.Player;
+
+/**
+ * BotGameView class
+ * 
+ * The GameView the Processor passes to Java bots. One is kept per player
+ * and pointed at the current round. The players and fields are wrapped in
+ * read-only views once, which read the live state instead of copying it.
+ */
+class BotGameView implements GameView {
+	
+	private Player player;
+	private BotPlayerView playerView;
+	private BotPlayerView opponentView;
+	private int round;
+	private ShapeType nextShape;
+	
+	BotGameView(Player player) {
+		this.player = player;
+		this.playerView = new BotPlayerView(player);
+		if(player.getOpponent() != null)
+			this.opponentView = new BotPlayerView(player.getOpponent());
+	}
+	
+	void setRound(int round, ShapeType nextShape) {
+		this.round = round;
+		this.nextShape = nextShape;
+	}
+	
+	@Override
+	public int getRound() {
+		return this.round;
+	}
+	
+	@Override
+	public ShapeType getCurrentShape() {
+		return this.player.getCurrentShape().getType();
+	}
+	
+	@Override
+	public ShapeType getNextShape() {
+		return this.nextShape;
+	}
+	
+	@Override
+	public int getShapeX() {
+		return this.player.getCurrentShape().getLocation().x;
+	}
+	
+	@Override
+	public int getShapeY() {
+		return this.player.getCurrentShape().getLocation().y;
+	}
+	
+	@Override
+	public long getTimeBank() {
+		return this.player.getTimeBank();
+	}
+	
+	@Override
+	public PlayerView getPlayer() {
+		return this.playerView;
+	}
+	
+	@Override
+	public PlayerView getOpponent() {
+		return this.opponentView;
+	}
+}
@@ -0,0 +1,65 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle;
+
+import com.theaigames.blockbattle.bot.PlayerView;
+import com.theaigames.blockbattle.field.FieldView;
+import com.theaigames.blockbattle.player.Player;
+
+/**
+ * BotPlayerView class
+ * 
+ * Read-only PlayerView of a player that Java bots get. It only forwards
+ * the getters, so a bot can't change the player by casting the view.
+ */
+class BotPlayerView implements PlayerView {
+	
+	private Player player;
+	private BotFieldView field;
+	
+	BotPlayerView(Player player) {
+		this.player = player;
+		this.field = new BotFieldView(player.getField());
+	}
+	
+	@Override
+	public String getName() {
+		return this.player.getName();
+	}
+	
+	@Override
+	public int getRowPoints() {
+		return this.player.getRowPoints();
+	}
+	
+	@Override
+	public int getCombo() {
+		return this.player.getCombo();
+	}
+	
+	@Override
+	public int getSkips() {
+		return this.player.getSkips();
+	}
+	
+	@Override
+	public FieldView getField() {
+		return this.field;
+	}
+}
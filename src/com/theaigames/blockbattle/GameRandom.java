@@ -0,0 +1,79 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import com.theaigames.blockbattle.field.ShapeType;
+
+/**
+ * All randomness of one game, derived from a single seed. The same
+ * seed always gives the same piece sequence and, as long as fields ask
+ * for their garbage streams in the same order, the same garbage holes.
+ * 
+ * Not thread safe, every game needs its own instance.
+ */
+public class GameRandom {
+	
+	private final long seed;
+	private final SplittableRandom shapeRandom;
+	private final SplittableRandom garbageRandom;
+	private final ArrayList<ShapeType> shapes;
+	
+	public GameRandom(long seed) {
+		SplittableRandom root = new SplittableRandom(seed);
+		
+		this.seed = seed;
+		this.shapeRandom = root.split();
+		this.garbageRandom = root.split();
+		this.shapes = new ArrayList<ShapeType>();
+	}
+	
+	/**
+	 * @return : a new seed for a game that should not be reproduced
+	 * from an earlier one
+	 */
+	public static long newSeed() {
+		return new SplittableRandom().nextLong();
+	}
+	
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	/**
+	 * Gets the shape at given position in the piece sequence of this game,
+	 * generating the sequence up to there if needed
+	 * @param index : position in the sequence, starting at 0
+	 * @return : the shape
+	 */
+	public ShapeType getShape(int index) {
+		while(this.shapes.size() <= index)
+			this.shapes.add(ShapeType.getRandom(this.shapeRandom));
+		return this.shapes.get(index);
+	}
+	
+	/**
+	 * @return : an independent random stream for the garbage lines
+	 * of one field
+	 */
+	public SplittableRandom newGarbageRandom() {
+		return this.garbageRandom.split();
+	}
+}
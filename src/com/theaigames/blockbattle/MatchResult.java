@@ -0,0 +1,93 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle;
+
+import java.nio.file.Path;
+
+/**
+ * MatchResult class
+ * 
+ * The outcome of one game run by a MatchRunner
+ */
+public class MatchResult {
+	
+	private int winner;
+	private String winnerName;
+	private int rounds;
+	private int[] points;
+	private long seed;
+	private Path replayFile;
+	
+	public MatchResult(int winner, String winnerName, int rounds, int[] points, long seed, Path replayFile) {
+		this.winner = winner;
+		this.winnerName = winnerName;
+		this.rounds = rounds;
+		this.points = points;
+		this.seed = seed;
+		this.replayFile = replayFile;
+	}
+	
+	/**
+	 * @return : index of the winning player, -1 if the game was a draw
+	 */
+	public int getWinner() {
+		return this.winner;
+	}
+	
+	/**
+	 * @return : name of the winning player, null if the game was a draw
+	 */
+	public String getWinnerName() {
+		return this.winnerName;
+	}
+	
+	public boolean isDraw() {
+		return this.winner < 0;
+	}
+	
+	public int getRounds() {
+		return this.rounds;
+	}
+	
+	/**
+	 * @return : the row points of every player, in player order
+	 */
+	public int[] getPoints() {
+		return this.points.clone();
+	}
+	
+	/**
+	 * @return : seed to play the game again with
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	/**
+	 * @return : the binary replay of the game, null if none was written
+	 */
+	public Path getReplayFile() {
+		return this.replayFile;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("winner %s, %d rounds, seed %d", this.isDraw() ? "none" : this.winnerName, this.rounds, this.seed);
+	}
+}
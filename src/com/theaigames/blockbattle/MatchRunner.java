@@ -0,0 +1,236 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import com.theaigames.blockbattle.bot.BlockbattleBot;
+import com.theaigames.blockbattle.bot.DirectIOPlayer;
+import com.theaigames.blockbattle.player.Player;
+import com.theaigames.engine.Engine;
+import com.theaigames.engine.ThreadedEngine;
+import com.theaigames.engine.io.IOPlayerable;
+import com.theaigames.engine.io.ThreadedInputStream;
+import com.theaigames.engine.io.ThreadedPrintStream;
+
+/**
+ * MatchRunner class
+ * 
+ * Runs many games at once inside one VM, on an executor of choice. The games
+ * do not exit the VM when they are finished and the bots are always ended,
+ * even when a game fails.
+ * 
+ * Bots are commands to start a bot process, or bot class names if the
+ * runner is threaded (see ThreadedBlockbattle). Java bots can be played
+ * with either kind of runner.
+ * 
+ * With -DvirtualThreads=true, a runner created with a number of games plays
+ * every game on a virtual thread of its own, as long as the VM supports them.
+ */
+public class MatchRunner {
+	
+	private static boolean threadedStreamsInstalled = false;
+	
+	private ExecutorService executor;
+	private boolean threaded;
+	private Semaphore parallelMatches; // limits the games of a thread-per-task executor, null if the executor does
+	
+	/**
+	 * @param executor : runs the games, every game occupies one of its threads until it is finished
+	 * @param threaded : true if the bots are classes to run on threads, false if they are commands
+	 */
+	public MatchRunner(ExecutorService executor, boolean threaded) {
+		this.executor = executor;
+		this.threaded = threaded;
+		
+		if(threaded)
+			installThreadedStreams();
+	}
+	
+	/**
+	 * Creates a runner for bot processes that runs given number of games at the same time
+	 */
+	public MatchRunner(int parallelMatches) {
+		this(Boolean.getBoolean("virtualThreads") ? newVirtualThreadExecutor() : null, parallelMatches);
+	}
+	
+	private MatchRunner(ExecutorService virtualThreads, int parallelMatches) {
+		this(virtualThreads != null ? virtualThreads : Executors.newFixedThreadPool(parallelMatches), false);
+		
+		if(virtualThreads != null)
+			this.parallelMatches = new Semaphore(parallelMatches);
+	}
+	
+	/**
+	 * @return : an executor that starts a virtual thread per game, null if
+	 * the VM has none (before Java 21). Looked up by reflection, so the
+	 * engine still builds for Java 8.
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		ThreadFactory factory = ThreadedEngine.virtualThreadFactory();
+		if(factory != null) {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+						.invoke(null, factory);
+			} catch(Exception e) {
+				// not there before Java 21 either
+			}
+		}
+		System.err.println("Virtual threads are not supported by this VM, using platform threads.");
+		return null;
+	}
+	
+	private static synchronized void installThreadedStreams() {
+		if(threadedStreamsInstalled)
+			return;
+		ThreadedPrintStream.replaceSystemOutAndErr();
+		ThreadedInputStream.replaceSystemIn();
+		threadedStreamsInstalled = true;
+	}
+	
+	/**
+	 * Queues a game on the executor
+	 * @param bots : the bots that play the game
+	 * @param seed : seed for the game, a new one if null
+	 * @param replayFile : file to write the binary replay to, none if null
+	 * @return : the result once the game is finished
+	 */
+	public Future<MatchResult> submit(List<String> bots, Long seed, Path replayFile) {
+		return this.executor.submit(limited(() -> run(bots, seed, replayFile)));
+	}
+	
+	/**
+	 * Queues a game between Java bots on the executor
+	 * @param bots : the bots that play the game, every game needs its own instances
+	 * @param seed : seed for the game, a new one if null
+	 * @param replayFile : file to write the binary replay to, none if null
+	 * @return : the result once the game is finished
+	 */
+	public Future<MatchResult> submitDirect(List<? extends BlockbattleBot> bots, Long seed, Path replayFile) {
+		return this.executor.submit(limited(() -> runDirect(bots, seed, replayFile)));
+	}
+	
+	// makes a game wait for its turn when the executor does not limit the games at once
+	private Callable<MatchResult> limited(Callable<MatchResult> game) {
+		if(this.parallelMatches == null)
+			return game;
+		
+		return () -> {
+			this.parallelMatches.acquire();
+			try {
+				return game.call();
+			} finally {
+				this.parallelMatches.release();
+			}
+		};
+	}
+	
+	/**
+	 * Plays a game on the calling thread
+	 * @param bots : the bots that play the game
+	 * @param seed : seed for the game, a new one if null
+	 * @param replayFile : file to write the binary replay to, none if null
+	 * @return : the result of the game
+	 */
+	public MatchResult run(List<String> bots, Long seed, Path replayFile) throws Exception {
+		Blockbattle game = createGame(this.threaded ? new ThreadedBlockbattle() : new Blockbattle(), seed, replayFile);
+		
+		try {
+			game.setupEngine(bots.toArray(new String[bots.size()]));
+			game.runEngine();
+		} finally {
+			endGame(game);
+		}
+		
+		return getResult(game);
+	}
+	
+	/**
+	 * Plays a game between Java bots on the calling thread, they are called
+	 * directly without the text protocol
+	 * @param bots : the bots that play the game, every game needs its own instances
+	 * @param seed : seed for the game, a new one if null
+	 * @param replayFile : file to write the binary replay to, none if null
+	 * @return : the result of the game
+	 */
+	public MatchResult runDirect(List<? extends BlockbattleBot> bots, Long seed, Path replayFile) throws Exception {
+		Blockbattle game = createGame(new Blockbattle(), seed, replayFile);
+		
+		game.engine = new Engine();
+		game.engine.setVerbose(game.VERBOSE);
+		for(int i=0; i < bots.size(); i++)
+			game.engine.addPlayer(new DirectIOPlayer(bots.get(i), i + ""));
+		
+		try {
+			game.runEngine();
+		} finally {
+			endGame(game);
+		}
+		
+		return getResult(game);
+	}
+	
+	private Blockbattle createGame(Blockbattle game, Long seed, Path replayFile) {
+		game.EXIT_ON_FINISH = false;
+		game.VERBOSE = false; // games run at the same time would all print to the same stdout
+		game.SEED = seed;
+		game.REPLAY_FILE = replayFile != null ? replayFile.toString() : null;
+		game.MOVE_LOG_FILE = null; // games run at the same time would all write the same file
+		return game;
+	}
+	
+	// ends the bots and closes the replay, also when the game failed
+	private void endGame(Blockbattle game) {
+		if(game.engine != null) {
+			for(IOPlayerable ioPlayer : game.engine.getPlayers())
+				ioPlayer.finish();
+		}
+		if(game.processor != null)
+			((Processor) game.processor).closeReplay();
+	}
+	
+	private MatchResult getResult(Blockbattle game) {
+		List<Player> players = game.getPlayers();
+		
+		int[] points = new int[players.size()];
+		for(int i=0; i < points.length; i++)
+			points[i] = players.get(i).getRowPoints();
+		
+		Player winner = (Player) game.processor.getWinner();
+		int winnerIndex = players.indexOf(winner);
+		
+		return new MatchResult(winnerIndex, winner != null ? winner.getName() : null, game.processor.getRoundNumber(),
+				points, game.getSeed(), game.REPLAY_FILE != null ? Paths.get(game.REPLAY_FILE) : null);
+	}
+	
+	/**
+	 * Stops accepting games, the ones that were submitted are still played
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+}
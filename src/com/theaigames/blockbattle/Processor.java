@@ -18,14 +18,21 @@
 package com.theaigames.blockbattle;
 
 import java.awt.Point;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import com.theaigames.blockbattle.bot.DirectIOPlayer;
 import com.theaigames.blockbattle.field.Shape;
 import com.theaigames.blockbattle.field.ShapeType;
 import com.theaigames.blockbattle.moves.Move;
 import com.theaigames.blockbattle.moves.MoveType;
 import com.theaigames.blockbattle.player.Player;
+import com.theaigames.blockbattle.replay.MoveLog;
+import com.theaigames.blockbattle.replay.ReplayWriter;
+import com.theaigames.blockbattle.replay.StateHash;
 import com.theaigames.game.GameHandler;
 import com.theaigames.game.player.AbstractPlayer;
 
@@ -36,8 +43,15 @@ public class Processor implements GameHandler {
 	private AbstractPlayer winner;
 	private boolean gameOver;
 	private ShapeType nextShape;
+	private GameRandom random;
+	private int shapeCount;
+	private ReplayWriter replay;
+	private MoveLog moveLog;
 	private int fieldWidth;
 	private int fieldHeight;
+	private BotGameView[] views; // for the Java bots, null for the others
+	private boolean textBots; // true if any bot uses the text protocol
+	private boolean verbose;
 	
 	private final int MAX_MOVES = 40;
 	private final int ROUNDS_PER_SOLID = 15;
@@ -52,12 +66,24 @@ public class Processor implements GameHandler {
 	private final int DOUBLE_T_SCORE = 10;
 	private final int PERFECT_CLEAR_SCORE = 18;
 	
-	public Processor(List<Player> players, int fieldWidth, int fieldHeight) {
+	public Processor(List<Player> players, int fieldWidth, int fieldHeight, GameRandom random) {
+		this(players, fieldWidth, fieldHeight, random, null);
+	}
+	
+	/**
+	 * @param replay : writer to stream the game to as it is played, can be null.
+	 * Its header has to be written already.
+	 */
+	public Processor(List<Player> players, int fieldWidth, int fieldHeight, GameRandom random, ReplayWriter replay) {
 		this.players = (ArrayList<Player>) players;
+		this.replay = replay;
+		this.random = random;
+		this.shapeCount = 0;
 		this.roundNumber = 0;
 		this.winner = null;
 		this.fieldWidth = fieldWidth;
 		this.fieldHeight = fieldHeight;
+		this.verbose = true;
 		
 		setNextShape();
 		
@@ -66,12 +92,37 @@ public class Processor implements GameHandler {
 			storePlayerState(player, null);
 			player.setOpponent(this.players);
 		}
+		
+		// Java bots are called directly, only text bots need updates
+		this.views = new BotGameView[this.players.size()];
+		this.textBots = false;
+		for(int i=0; i < this.views.length; i++) {
+			if(this.players.get(i).getBot() instanceof DirectIOPlayer)
+				this.views[i] = new BotGameView(this.players.get(i));
+			else
+				this.textBots = true;
+		}
+	}
+
+	/**
+	 * @param moveLog : log to add the moves of every round to, can be null
+	 */
+	public void setMoveLog(MoveLog moveLog) {
+		this.moveLog = moveLog;
+	}
+
+	/**
+	 * @param verbose : false to not print every round, when games are played again in bulk
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
 	}
 
 	@Override
 	public void playRound(int roundNumber) {
 		
-		System.out.println("playing round " + roundNumber);
+		if(this.verbose)
+			System.out.println("playing round " + roundNumber);
 		
 		this.roundNumber = roundNumber;
 		ShapeType nextShape = this.nextShape;
@@ -94,17 +145,42 @@ public class Processor implements GameHandler {
 			storePlayerState(player, null);
 		}
 		
-		if(this.gameOver) // game could be over after spawning of shape
+		if(this.gameOver) { // game could be over after spawning of shape
+			closeReplay();
 			return;
+		}
 		
-		// send updates and ask for moves
-		for(Player player : this.players) {
-			sendRoundUpdatesToPlayer(player);
+		// send updates and ask all text bots for moves, so they think at the same time
+		if(this.textBots) {
+			
+			// encode the updates every player gets once
+			byte[] gameUpdates = encodeGameUpdates(this.players.get(0));
+			for(Player player : this.players)
+				player.setEncodedUpdates(encodePlayerUpdates(player));
 			
-			ArrayList<Move> moves = parseMoves(player.requestMove("moves"), player);
-			player.setRoundMoves(moves);
+			for(int i=0; i < this.players.size(); i++) {
+				if(this.views[i] != null)
+					continue;
+				sendRoundUpdatesToPlayer(this.players.get(i), gameUpdates);
+				this.players.get(i).sendMoveRequest("moves");
+			}
+		}
+		
+		// call the Java bots meanwhile, then collect the moves of the others
+		for(int i=0; i < this.players.size(); i++) {
+			if(this.views[i] != null)
+				this.players.get(i).setRoundMoves(chooseMoves(this.players.get(i), this.views[i]));
+		}
+		for(int i=0; i < this.players.size(); i++) {
+			if(this.views[i] == null) {
+				Player player = this.players.get(i);
+				player.setRoundMoves(parseMoves(player.receiveMove(), player));
+			}
 		}
 		
+		if(this.moveLog != null)
+			logMoves();
+		
 		// execute all moves
 		for(Player player : this.players) {
 			executeMovesForPlayer(player);
@@ -125,6 +201,13 @@ public class Processor implements GameHandler {
 				if(player.getField().addSolidRows(1)) // set winner if player is out of bounds
 					setWinner(player.getOpponent());
 		}
+		
+		if(this.moveLog != null && this.moveLog.getHashAlgorithm() != StateHash.NONE)
+			this.moveLog.setStateHash(this.roundNumber, 
+					StateHash.hash(this.moveLog.getHashAlgorithm(), this.players, this.nextShape));
+		
+		if(isGameOver())
+			closeReplay();
 	}
 
 	@Override
@@ -149,36 +232,64 @@ public class Processor implements GameHandler {
 	}
 
 	/**
-	 * Sets the next shape to be played randomly
+	 * Sets the next shape to be played from the game's piece sequence
 	 */
 	private void setNextShape() {
-		this.nextShape = ShapeType.getRandom();
+		this.nextShape = this.random.getShape(this.shapeCount);
+		this.shapeCount++;
 	}
 	
 	/**
 	 * Sends all updates the player needs at the start of the round.
 	 * @param player : player to send the updates to
+	 * @param gameUpdates : encoded game updates of this round
 	 */
-	private void sendRoundUpdatesToPlayer(Player player) {
+	private void sendRoundUpdatesToPlayer(Player player, byte[] gameUpdates) {
 		
 		// game updates
-		player.sendUpdate("round", roundNumber);
-		player.sendUpdate("this_piece_type", player.getCurrentShape().getType().toString());
-		player.sendUpdate("next_piece_type", nextShape.toString());
-		player.sendUpdate("this_piece_position", player.getCurrentShape().getPositionString());
+		player.sendEncoded(gameUpdates);
 		
 		// player updates
-		player.sendUpdate("row_points", player, player.getRowPoints());
-		player.sendUpdate("combo", player, player.getCombo());
-		player.sendUpdate("skips", player, player.getSkips());
-		player.sendUpdate("field", player, player.getField().toString(false, false));
+		player.sendEncoded(player.getEncodedUpdates());
 		
 		// opponent updates
-		Player opponent = player.getOpponent();
-		player.sendUpdate("field", opponent, opponent.getField().toString(false, false));
-		player.sendUpdate("row_points", opponent, opponent.getRowPoints());
-		player.sendUpdate("combo", opponent, opponent.getCombo());
-		player.sendUpdate("skips", opponent, opponent.getSkips());
+		player.sendEncoded(player.getOpponent().getEncodedUpdates());
+	}
+	
+	/**
+	 * Encodes the updates about the game of this round. All players have the same
+	 * piece at the same position in equally wide fields, so the updates are shared.
+	 * @param player : any player that has the current shape
+	 */
+	private byte[] encodeGameUpdates(Player player) {
+		StringBuilder updates = new StringBuilder(128);
+		
+		appendUpdate(updates, "game", "round", Integer.toString(this.roundNumber));
+		appendUpdate(updates, "game", "this_piece_type", player.getCurrentShape().getType().toString());
+		appendUpdate(updates, "game", "next_piece_type", this.nextShape.toString());
+		appendUpdate(updates, "game", "this_piece_position", player.getCurrentShape().getPositionString());
+		
+		return updates.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * Encodes the updates about given player, which are sent to the player and its opponent
+	 */
+	private byte[] encodePlayerUpdates(Player player) {
+		String field = player.getField().toString(false, false);
+		StringBuilder updates = new StringBuilder(field.length() + 128);
+		
+		appendUpdate(updates, player.getName(), "row_points", Integer.toString(player.getRowPoints()));
+		appendUpdate(updates, player.getName(), "combo", Integer.toString(player.getCombo()));
+		appendUpdate(updates, player.getName(), "skips", Integer.toString(player.getSkips()));
+		appendUpdate(updates, player.getName(), "field", field);
+		
+		return updates.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	// appends one update line in the same format as AbstractPlayer.sendUpdate()
+	private void appendUpdate(StringBuilder updates, String about, String type, String value) {
+		updates.append("update ").append(about).append(' ').append(type).append(' ').append(value).append('\n');
 	}
 	
 	private ArrayList<Move> parseMoves(String input, Player player) {
@@ -201,6 +312,42 @@ public class Processor implements GameHandler {
 		return moves;
 	}
 	
+	/**
+	 * Calls a Java bot for its moves, the time it takes is taken from its time bank
+	 * @param player : player of the bot
+	 * @param view : view of the game for the bot
+	 * @return : the moves to execute, none if the bot ran out of time
+	 */
+	private ArrayList<Move> chooseMoves(Player player, BotGameView view) {
+		ArrayList<Move> moves = new ArrayList<Move>();
+		DirectIOPlayer bot = (DirectIOPlayer) player.getBot();
+		view.setRound(this.roundNumber, this.nextShape);
+		
+		long startTime = System.nanoTime();
+		List<MoveType> moveTypes = bot.getBot().chooseMoves(view);
+		long timeElapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+		
+		if(timeElapsed > player.getTimeBank()) {
+			bot.outputEngineWarning(String.format("Response timed out (%dms), all moves are skipped.", timeElapsed));
+			moveTypes = null;
+		}
+		player.updateTimeBank(timeElapsed);
+		
+		if(moveTypes == null)
+			return moves;
+		
+		for(MoveType moveType : moveTypes) {
+			if(moves.size() > MAX_MOVES) {
+				bot.outputEngineWarning(String.format("Maximum number of moves reached, only the first %s will be executed.", MAX_MOVES));
+				break;
+			}
+			if(moveType != null)
+				moves.add(new Move(player, moveType));
+		}
+		
+		return moves;
+	}
+	
 	private Move parseMove(String input, Player player) {
 		MoveType moveType = MoveType.fromString(input);
 		
@@ -212,6 +359,18 @@ public class Processor implements GameHandler {
 		return new Move(player, moveType);
 	}
 	
+	// adds the moves of this round to the move log
+	private void logMoves() {
+		MoveType[][] moves = new MoveType[this.players.size()][];
+		for(int i=0; i < moves.length; i++) {
+			ArrayList<Move> roundMoves = this.players.get(i).getRoundMoves();
+			moves[i] = new MoveType[roundMoves.size()];
+			for(int j=0; j < moves[i].length; j++)
+				moves[i][j] = roundMoves.get(j).getType();
+		}
+		this.moveLog.addRound(moves);
+	}
+	
 	private void executeMovesForPlayer(Player player) {
 		Shape shape = player.getCurrentShape();
 		Move lastMove1 = null;
@@ -370,6 +529,34 @@ public class Processor implements GameHandler {
 	// stores everything needed in a state for the visualizer for given player
 	private void storePlayerState(Player player, Move move) {
 		player.addPlayerState(this.roundNumber, move, this.nextShape);
+		
+		if(this.replay != null) {
+			try {
+				this.replay.writeState(this.players.indexOf(player), this.roundNumber, move, player.getCombo(), 
+						player.getSkips(), player.getRowPoints(), this.nextShape, player.getField());
+			} catch (IOException e) {
+				e.printStackTrace();
+				this.replay = null;
+			}
+		}
+	}
+	
+	/**
+	 * Writes the result to the replay and closes it, does nothing if it was
+	 * closed already. Happens by itself when the game is over, has to be
+	 * called when a game is stopped before that.
+	 */
+	public void closeReplay() {
+		if(this.replay == null)
+			return;
+		
+		try {
+			this.replay.writeEnd(this.players.indexOf(this.winner), this.roundNumber);
+			this.replay.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		this.replay = null;
 	}
 	
 	// if there was a winner already, set winner to null, so we know it's a draw
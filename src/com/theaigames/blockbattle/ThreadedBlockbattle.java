@@ -22,6 +22,7 @@ public class ThreadedBlockbattle extends Blockbattle {
   public void setupEngine(String args[]) throws IOException, RuntimeException {
     // create engine
     this.engine = new ThreadedEngine();
+    this.engine.setVerbose(VERBOSE);
 
     // add the test bots if in DEV_MODE
     if(DEV_MODE) {
@@ -0,0 +1,39 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.bot;
+
+import java.util.List;
+
+import com.theaigames.blockbattle.moves.MoveType;
+
+/**
+ * BlockbattleBot interface
+ * 
+ * A bot that runs inside the engine and is called directly, without the text
+ * protocol or a thread of its own. Add it to a game with a DirectIOPlayer.
+ */
+public interface BlockbattleBot {
+	
+	/**
+	 * Chooses the moves for the current shape
+	 * @param view : the state of the game, only valid during this call
+	 * @return : the moves to make, in order
+	 */
+	public List<MoveType> chooseMoves(GameView view);
+}
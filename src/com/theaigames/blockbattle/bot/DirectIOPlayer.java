@@ -0,0 +1,113 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.bot;
+
+import com.theaigames.engine.io.IOPlayerable;
+
+/**
+ * DirectIOPlayer class
+ * 
+ * Connects a BlockbattleBot to the engine. Nothing is sent to the bot, the
+ * Processor calls it directly for its moves instead of requesting them, so
+ * all text IO is ignored. Engine warnings still end up in the dump.
+ */
+public class DirectIOPlayer implements IOPlayerable {
+	
+	private BlockbattleBot bot;
+	private String idString;
+	private StringBuilder dump;
+	
+	public DirectIOPlayer(BlockbattleBot bot, String idString) {
+		this.bot = bot;
+		this.idString = idString;
+		this.dump = new StringBuilder();
+	}
+	
+	/**
+	 * @return : the bot to call for moves
+	 */
+	public BlockbattleBot getBot() {
+		return this.bot;
+	}
+	
+	@Override
+	public void writeToBot(String line) {}
+	
+	@Override
+	public void queueToBot(String line) {}
+	
+	@Override
+	public void queueToBot(byte[] lines, int offset, int length) {}
+	
+	@Override
+	public void flushToBot() {}
+	
+	@Override
+	public void outputEngineWarning(String warning) {
+		this.dump.append(String.format("Engine warning: \"%s\"\n", warning));
+	}
+	
+	/**
+	 * Java bots don't answer requests, they are called directly
+	 * @return : always an empty string
+	 */
+	@Override
+	public String getResponse(long timeOut) {
+		return "";
+	}
+	
+	@Override
+	public long getResponseTime() {
+		return System.nanoTime();
+	}
+	
+	@Override
+	public void setResponse(String response) {}
+	
+	@Override
+	public String getStdout() {
+		return "";
+	}
+	
+	@Override
+	public String getStderr() {
+		return "";
+	}
+	
+	@Override
+	public void addToDump(String dumpy) {
+		this.dump.append(dumpy).append("\n");
+	}
+	
+	@Override
+	public String getDump() {
+		return this.dump.toString();
+	}
+	
+	@Override
+	public String getIdString() {
+		return this.idString;
+	}
+	
+	@Override
+	public void finish() {}
+	
+	@Override
+	public void run() {}
+}
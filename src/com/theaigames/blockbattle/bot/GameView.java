@@ -0,0 +1,59 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.bot;
+
+import com.theaigames.blockbattle.field.ShapeType;
+
+/**
+ * GameView interface
+ * 
+ * Everything a Java bot gets to know at the start of a round, the same
+ * information the text protocol sends as updates. Only valid during the
+ * call it was passed to.
+ */
+public interface GameView {
+	
+	public int getRound();
+	
+	public ShapeType getCurrentShape();
+	
+	public ShapeType getNextShape();
+	
+	/**
+	 * @return : x of the top left corner of the current shape's box
+	 */
+	public int getShapeX();
+	
+	/**
+	 * @return : y of the top left corner of the current shape's box
+	 */
+	public int getShapeY();
+	
+	/**
+	 * @return : time left in the bot's time bank in milliseconds
+	 */
+	public long getTimeBank();
+	
+	/**
+	 * @return : the player the bot plays for
+	 */
+	public PlayerView getPlayer();
+	
+	public PlayerView getOpponent();
+}
@@ -18,55 +18,99 @@
 package com.theaigames.blockbattle.field;
 
 import java.awt.Point;
-import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
+/**
+ * The playing field of one player.
+ *
+ * Every row is stored as a set of bitmasks, one per cell state, where bit x
+ * stands for column x. Rows are FieldRow objects that are moved by reference
+ * when lines are cleared or inserted, so none of that copies or allocates.
+ * 
+ * The field keeps a Zobrist hash of its cells (see Zobrist). Changing a cell
+ * updates it with a few XORs, only moving rows mixes all rows in again.
+ */
 public class Field {
-
+	
+	private static final int MAX_WIDTH = 32;
+	
 	private int width;
 	private int height;
 	private int solidRows;
-	public Cell grid[][];
-	private static final SecureRandom RANDOM = new SecureRandom();
+	private int fullRow; // mask with all columns set
+	private FieldRow[] rows; // top row first
+	private int[] columnTops; // per column the y of the highest block or solid cell, height if there is none
+	private long hash;
+	private int[] shapeCellX; // shape cells set since the last cleanField()
+	private int[] shapeCellY;
+	private int shapeCells;
+	private SplittableRandom random; // for the holes in garbage lines
 	
 	public Field(int width, int height) {
+		this(width, height, new SplittableRandom());
+	}
+	
+	public Field(int width, int height, SplittableRandom random) {
+		if(width > MAX_WIDTH)
+			throw new IllegalArgumentException(String.format("Field width can be at most %d.", MAX_WIDTH));
+		if(height > Zobrist.MAX_HEIGHT)
+			throw new IllegalArgumentException(String.format("Field height can be at most %d.", Zobrist.MAX_HEIGHT));
 		
 		this.height = height;
 		this.width = width;
 		this.solidRows = 0;
-		grid = new Cell[width][height];
+		this.fullRow = (int) ((1L << width) - 1);
+		this.rows = new FieldRow[height];
+		this.columnTops = new int[width];
+		this.shapeCellX = new int[4];
+		this.shapeCellY = new int[4];
+		this.shapeCells = 0;
+		this.random = random;
 		
 		for(int y=0; y < height; y++) {
-			for(int x=0; x < width; x++) {
-				grid[x][y] = new Cell(x, y);
-			}
+			rows[y] = new FieldRow(width);
 		}
+		Arrays.fill(this.columnTops, height);
+		updateHash();
 	}
 	
-	// moves the whole field upwards to make room for new
+	// moves the rows above the solid rows upwards to make room for new
 	// lines from the bottom, returns true if game over.
-	// leaves the bottom rows untouched (are changed in the appropriate
-	// methods).
+	// the rows that are freed up right above the solid rows are left
+	// empty (are filled in the appropriate methods).
 	public boolean moveFieldUp(int amount) {
 		if(amount <= 0)
 			return false;
 		
 		boolean gameOver = false;
 		
-		for(int y = 0; y < height + amount - solidRows; y++) {
-			for(int x = 0; x < width; x++) {
-
-				int newY = y - amount;
-				
-				if(newY < 0 && !grid[x][y].isEmpty()) {
-					gameOver = true;
-				}
-				
-				if(newY >= 0 && y < height) { // move cells up
-					grid[x][newY] = grid[x][y].clone();
-					grid[x][newY].setLocation(x, newY);
-				}
+		for(int y = 0; y < amount && y < height; y++) {
+			if(rows[y].getMask() != 0)
+				gameOver = true;
+		}
+		
+		// rotate the top rows down to right above the solid rows
+		int free = height - solidRows;
+		for(int i = 0; i < amount && i < free; i++) {
+			FieldRow row = rows[0];
+			System.arraycopy(rows, 1, rows, 0, free - 1);
+			row.clear();
+			rows[free - 1] = row;
+		}
+		updateColumnTops();
+		updateHash();
+		
+		// shape cells move up with their rows
+		int kept = 0;
+		for(int i=0; i < shapeCells; i++) {
+			if(shapeCellY[i] >= amount) {
+				shapeCellX[kept] = shapeCellX[i];
+				shapeCellY[kept] = shapeCellY[i] - amount;
+				kept++;
 			}
 		}
+		shapeCells = kept;
 		
 		return gameOver;
 	}
@@ -76,11 +120,11 @@ public class Field {
 		boolean gameOver = moveFieldUp(amount);
 		
 		// make the bottom rows into solid rows
-		for(int y = height - solidRows - 1; y > height - solidRows - amount - 1; y--) {
-			for(int x = 0; x < width; x++) {
-				grid[x][y].setSolid();
-			}
+		for(int y = height - solidRows - 1; y > height - solidRows - amount - 1 && y >= 0; y--) {
+			rows[y].setSolid(fullRow);
 		}
+		updateColumnTops();
+		updateHash();
 		
 		this.solidRows += amount;
 		
@@ -89,49 +133,27 @@ public class Field {
 	
 	public boolean addGarbageLines(int amount, boolean firstIsSingle) {
 		boolean gameOver = moveFieldUp(amount);
-//		ArrayList<Integer> exclude = new ArrayList<Integer>();
 		int count = 0;
 		
 		// make the bottom rows into garbage lines
-		for(int y = height - solidRows - 1; y > height - solidRows - amount - 1; y--) {
-
-//			// add random hole, and make sure it is not on the same column
-//			// for multiple garbage lines
-//			int emptyCellIndex = RANDOM.nextInt(width - exclude.size());
-//			for(int ex : exclude) {
-//				if(emptyCellIndex < ex)
-//					break;
-//				emptyCellIndex++;
-//			}
-//			exclude.add(emptyCellIndex);
-//			Collections.sort(exclude);
-//
-//			for(int x = 0; x < width; x++) {
-//				if(x == emptyCellIndex)
-//					grid[x][y].setEmpty();
-//				else {
-//					grid[x][y].setBlock();
-//					grid[x][y].setShapeType(ShapeType.G);
-//				}
-//			}
+		for(int y = height - solidRows - 1; y > height - solidRows - amount - 1 && y >= 0; y--) {
 			
 			// switch between single and double holes in garbage lines
 			count++;
 			
-			for(int x = 0; x < width; x++) {
-				grid[x][y].setBlock();
-				grid[x][y].setShapeType(ShapeType.G);
-			}
+			rows[y].setGarbage(fullRow);
 			
-			int index1 = RANDOM.nextInt(width);
-			grid[index1][y].setEmpty();
+			int index1 = random.nextInt(width);
+			setEmpty(index1, y);
 			
 			if ((count % 2 == 1 && !firstIsSingle) || (count % 2 == 0 && firstIsSingle)) { // double hole
-				int rotate = 1 + RANDOM.nextInt(width - 1);
+				int rotate = 1 + random.nextInt(width - 1);
 				int index2 = (index1 + rotate) % width;
-				grid[index2][y].setEmpty();
+				setEmpty(index2, y);
 			}
 		}
+		updateColumnTops();
+		updateHash();
 		
 		return gameOver;
 	}
@@ -140,50 +162,84 @@ public class Field {
 	// returns number of full rows
 	public int processEndOfRoundField() {
 		int rowsRemoved = 0;
+		cleanField();
+		
 		for(int y=0; y < height; y++) {
-			boolean fullRow = true;
-			
-			for(int x=0; x < width; x++) { 
-				if(grid[x][y].isShape())
-					grid[x][y].setEmpty();
-				if(!grid[x][y].isBlock()) // check if line contains only block cells
-					fullRow = false;
-			}
-			
-			if(fullRow) { // move cells down one line
-				for(int oy = y - 1; oy >= 0; oy--) {
-					for(int x=0; x < width; x++) {
-						grid[x][oy + 1] = grid[x][oy].clone(); 
-					}
-				}
-				for(int x=0; x < width; x++) {
-					grid[x][0].setEmpty();
-				}
+			if(rows[y].getBlocks() == fullRow) { // move rows down one line
+				FieldRow row = rows[y];
+				System.arraycopy(rows, 0, rows, 1, y);
+				row.clear();
+				rows[0] = row;
 				rowsRemoved++;
 			}
 		}
+		if(rowsRemoved > 0) {
+			updateColumnTops();
+			updateHash();
+		}
 		return rowsRemoved;
 	}
 	
 	// checks whether the whole field is empty
-	public boolean isFieldCleared() {	
+	public boolean isFieldCleared() {
 		for(int y=0; y < height; y++)
-			for(int x=0; x < width; x++)
-				if(grid[x][y].isBlock())
-					return false;
+			if(rows[y].getBlocks() != 0)
+				return false;
 		return true;
 	}
 	
-	// removes shape cells from field
+	// removes shape cells from field, only the cells that were set
+	// since the last clean have to be visited
 	public void cleanField() {
-		for(int y=0; y < height; y++) {
-			for(int x=0; x < width; x++) { 
-				if(grid[x][y].isShape())
-					grid[x][y].setEmpty();
+		for(int i=0; i < shapeCells; i++) {
+			FieldRow row = rows[shapeCellY[i]];
+			int x = shapeCellX[i];
+			int bit = 1 << x;
+			
+			if((row.getShapes() & bit) != 0) { // could have been frozen or emptied since
+				long before = row.getHash();
+				row.setEmpty(x);
+				rowChanged(shapeCellY[i], before);
+			}
+		}
+		shapeCells = 0;
+	}
+	
+	// finds the highest block or solid cell of every column
+	private void updateColumnTops() {
+		Arrays.fill(columnTops, height);
+		
+		int remaining = fullRow;
+		for(int y=0; y < height && remaining != 0; y++) {
+			int found = rows[y].getOccupiedMask() & remaining;
+			remaining &= ~found;
+			while(found != 0) {
+				columnTops[Integer.numberOfTrailingZeros(found)] = y;
+				found &= found - 1;
 			}
 		}
 	}
 	
+	// mixes the hashes of all rows with their positions again, after rows moved
+	private void updateHash() {
+		hash = 0;
+		for(int y=0; y < height; y++)
+			hash ^= Zobrist.rowHash(rows[y].getHash(), y);
+	}
+	
+	// replaces what row y added to the hash before it changed
+	private void rowChanged(int y, long before) {
+		hash ^= Zobrist.rowHash(before, y) ^ Zobrist.rowHash(rows[y].getHash(), y);
+	}
+	
+	// finds the highest block or solid cell of given column, starting at row y
+	private void updateColumnTop(int x, int y) {
+		int bit = 1 << x;
+		while(y < height && (rows[y].getOccupiedMask() & bit) == 0)
+			y++;
+		columnTops[x] = y;
+	}
+	
 	public int getHeight() {
 		return this.height;
 	}
@@ -192,71 +248,178 @@ public class Field {
 		return this.width;
 	}
 	
+	/**
+	 * @return : mask of all cells in row y that are not empty
+	 */
+	public int getRowMask(int y) {
+		return rows[y].getMask();
+	}
+	
+	/**
+	 * @return : mask of all cells in row y that a shape collides with
+	 */
+	public int getOccupiedMask(int y) {
+		return rows[y].getOccupiedMask();
+	}
+	
+	/**
+	 * @return : the y of the highest block or solid cell in column x, the
+	 * field height if the column has none
+	 */
+	public int getColumnTop(int x) {
+		return columnTops[x];
+	}
+	
+	public long getHash() {
+		return hash;
+	}
+	
+	public boolean isInside(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+	
+	/**
+	 * @return : true if the cell is a block or solid, false if it is
+	 * empty, a shape or outside of the field
+	 */
+	public boolean isOccupied(int x, int y) {
+		if(!isInside(x, y))
+			return false;
+		return (rows[y].getOccupiedMask() & (1 << x)) != 0;
+	}
+	
+	/**
+	 * @return : the state of given cell, null if it is outside of the field
+	 */
+	public CellType getCellType(int x, int y) {
+		if(!isInside(x, y))
+			return null;
+		
+		return rows[y].getCellType(x);
+	}
+	
+	/**
+	 * @return : the shape type of given cell, null if it is outside of the field
+	 */
+	public ShapeType getShapeType(int x, int y) {
+		if(!isInside(x, y))
+			return null;
+		return rows[y].getShapeType(x);
+	}
+	
+	/**
+	 * Returns a copy of the cell at given location, changing it
+	 * does not change the field.
+	 * @param p : location of the cell
+	 * @return : the cell, null if it is outside of the field
+	 */
 	public Cell getCell(Point p) {
-		if(p.x < 0 || p.x >= width || p.y < 0 || p.y >= height)
+		if(!isInside(p.x, p.y))
 			return null;
-		return grid[p.x][p.y];
+		return new Cell(new Point(p), getCellType(p.x, p.y), getShapeType(p.x, p.y));
 	}
 	
 	public void setShape(Point p, ShapeType shape) {
-		Cell cell = getCell(p);
-		if(cell != null && cell.isEmpty()) {
-			cell.setShape();
-			cell.setShapeType(shape);
+		setShape(p.x, p.y, shape);
+	}
+	
+	public void setShape(int x, int y, ShapeType shape) {
+		if(isInside(x, y) && (rows[y].getMask() & (1 << x)) == 0) {
+			long before = rows[y].getHash();
+			rows[y].setShape(x, shape);
+			rowChanged(y, before);
+			
+			if(shapeCells == shapeCellX.length) {
+				shapeCellX = Arrays.copyOf(shapeCellX, shapeCells * 2);
+				shapeCellY = Arrays.copyOf(shapeCellY, shapeCells * 2);
+			}
+			shapeCellX[shapeCells] = x;
+			shapeCellY[shapeCells] = y;
+			shapeCells++;
 		}
 	}
 	
 	public void setBlock(Point p, ShapeType shape) {
-		Cell cell = getCell(p);
-		if(cell != null) {
-			if(!cell.isSolid() && !cell.isBlock()) {
-				cell.setBlock();
-				cell.setShapeType(shape);
+		setBlock(p.x, p.y, shape);
+	}
+	
+	public void setBlock(int x, int y, ShapeType shape) {
+		if(isInside(x, y)) {
+			FieldRow row = rows[y];
+			int bit = 1 << x;
+			if((row.getOccupiedMask() & bit) == 0) {
+				long before = row.getHash();
+				row.setBlock(x, shape);
+				rowChanged(y, before);
+				columnTops[x] = Math.min(columnTops[x], y);
 			} else {
-				System.err.printf("Can't set block here. (%s %s)\n", p.toString(), shape);
+				System.err.printf("Can't set block here. (%s %s)\n", new Point(x, y).toString(), shape);
 			}
 		}
 	}
 	
 	public void setEmpty(Point p) {
-		Cell cell = getCell(p);
-		if(cell != null)
-			cell.setEmpty();
+		setEmpty(p.x, p.y);
+	}
+	
+	public void setEmpty(int x, int y) {
+		if(!isInside(x, y))
+			return;
+		
+		long before = rows[y].getHash();
+		rows[y].setEmpty(x);
+		rowChanged(y, before);
+		
+		if(columnTops[x] == y)
+			updateColumnTop(x, y);
+	}
+	
+	/**
+	 * Writes all cells of the field row by row into given array, as the
+	 * characters toString() uses for them
+	 * @param cells : array of at least width * height bytes
+	 */
+	public void getCells(byte[] cells, boolean forVisualizer) {
+		for(int y=0; y < height; y++) {
+			rows[y].getCells(cells, y * width, forVisualizer);
+		}
+	}
+	
+	/**
+	 * Returns string representation of cells written by getCells(),
+	 * the same string toString(false, ...) returned for the field
+	 */
+	public static String toString(byte[] cells, int width, int height) {
+		StringBuilder output = new StringBuilder(width * height * 2);
+		
+		for(int i=0; i < width * height; i++) {
+			if(i > 0)
+				output.append(i % width == 0 ? ';' : ',');
+			output.append((char) cells[i]);
+		}
+		
+		return output.toString();
 	}
 	
 	/**
 	 * Returns string representation of the current field
-	 * pretty for printing in console
+	 * pretty for printing in console. Rows that did not change since
+	 * the last call are not encoded again.
 	 */
 	public String toString(boolean pretty, boolean forVisualizer) {
-		StringBuffer output = new StringBuffer();
+		StringBuilder output = new StringBuilder(width * height * 2);
 		
-		String rowConnector = ",";
-		String collumnConnector = ";";
+		char rowConnector = ',';
+		char collumnConnector = ';';
 		if(pretty) {
-			rowConnector = " ";
-			collumnConnector = "\n";
+			rowConnector = ' ';
+			collumnConnector = '\n';
 		}
 		
-		String collumnJoin = "";
 		for(int y=0; y < height; y++) {
-			
-			output.append(collumnJoin);
-			
-			String rowJoin = "";
-			for(int x=0; x < width; x++) {
-				output.append(rowJoin);
-				String cellState = grid[x][y].getState().getCode() + "";
-				
-				if(forVisualizer && grid[x][y].getShapeType() != ShapeType.NONE) {
-					cellState = grid[x][y].getShapeType().toString();
-				}
-				
-				output.append(cellState);
-				rowJoin = rowConnector;
-			}
-			
-			collumnJoin = collumnConnector;
+			if(y > 0)
+				output.append(collumnConnector);
+			output.append(rows[y].toString(rowConnector, forVisualizer));
 		}
 		
 		return output.toString();
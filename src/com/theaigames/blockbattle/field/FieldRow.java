@@ -0,0 +1,204 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.field;
+
+import java.util.Arrays;
+
+/**
+ * One row of a Field. Bit x of each mask stands for column x.
+ * 
+ * Rows are moved around by reference when lines are cleared or added,
+ * so everything that belongs to a row has to be stored in here. That
+ * includes the encoded strings of the row, which are only built again
+ * after the row changed, and its Zobrist hash.
+ */
+class FieldRow {
+	
+	private static final ShapeType[] SHAPE_TYPES = ShapeType.values();
+	private static final byte NO_SHAPE = (byte) ShapeType.NONE.ordinal();
+	
+	private int shapes;
+	private int blocks;
+	private int solids;
+	private final byte[] shapeTypes; // ShapeType ordinal per column
+	private String protocolString; // null when the row changed since it was last encoded
+	private String visualizerString;
+	private long hash; // XOR of the Zobrist keys of all cells
+	
+	FieldRow(int width) {
+		this.shapeTypes = new byte[width];
+		clear();
+	}
+	
+	// makes all cells in this row empty
+	void clear() {
+		this.shapes = 0;
+		this.blocks = 0;
+		this.solids = 0;
+		Arrays.fill(this.shapeTypes, NO_SHAPE);
+		this.hash = 0;
+		changed();
+	}
+	
+	void setShape(int x, ShapeType shape) {
+		this.hash ^= cellKey(x) ^ Zobrist.cellKey(x, CellType.SHAPE, shape);
+		this.shapes |= 1 << x;
+		this.shapeTypes[x] = (byte) shape.ordinal();
+		changed();
+	}
+	
+	void setBlock(int x, ShapeType shape) {
+		this.hash ^= cellKey(x) ^ Zobrist.cellKey(x, CellType.BLOCK, shape);
+		this.shapes &= ~(1 << x);
+		this.blocks |= 1 << x;
+		this.shapeTypes[x] = (byte) shape.ordinal();
+		changed();
+	}
+	
+	void setEmpty(int x) {
+		this.hash ^= cellKey(x);
+		int bit = ~(1 << x);
+		this.shapes &= bit;
+		this.blocks &= bit;
+		this.solids &= bit;
+		this.shapeTypes[x] = NO_SHAPE;
+		changed();
+	}
+	
+	// makes the whole row solid
+	void setSolid(int fullRow) {
+		clear();
+		this.solids = fullRow;
+		updateHash();
+	}
+	
+	// makes the whole row garbage blocks
+	void setGarbage(int fullRow) {
+		clear();
+		this.blocks = fullRow;
+		Arrays.fill(this.shapeTypes, (byte) ShapeType.G.ordinal());
+		updateHash();
+	}
+	
+	private long cellKey(int x) {
+		return Zobrist.cellKey(x, getCellType(x), getShapeType(x));
+	}
+	
+	private void updateHash() {
+		this.hash = 0;
+		for(int x=0; x < this.shapeTypes.length; x++)
+			this.hash ^= cellKey(x);
+	}
+	
+	private void changed() {
+		this.protocolString = null;
+		this.visualizerString = null;
+	}
+	
+	int getShapes() {
+		return this.shapes;
+	}
+	
+	int getBlocks() {
+		return this.blocks;
+	}
+	
+	int getSolids() {
+		return this.solids;
+	}
+	
+	long getHash() {
+		return this.hash;
+	}
+	
+	ShapeType getShapeType(int x) {
+		return SHAPE_TYPES[this.shapeTypes[x]];
+	}
+	
+	// mask of all cells that are not empty
+	int getMask() {
+		return this.shapes | this.blocks | this.solids;
+	}
+	
+	// mask of all cells a shape collides with
+	int getOccupiedMask() {
+		return this.blocks | this.solids;
+	}
+	
+	CellType getCellType(int x) {
+		int bit = 1 << x;
+		if((this.shapes & bit) != 0)
+			return CellType.SHAPE;
+		if((this.blocks & bit) != 0)
+			return CellType.BLOCK;
+		if((this.solids & bit) != 0)
+			return CellType.SOLID;
+		return CellType.EMPTY;
+	}
+	
+	/**
+	 * @return : the cells of this row joined by given connector,
+	 * cached as long as the row does not change when the connector is ','
+	 */
+	String toString(char connector, boolean forVisualizer) {
+		if(connector != ',')
+			return encode(connector, forVisualizer);
+		
+		if(forVisualizer) {
+			if(this.visualizerString == null)
+				this.visualizerString = encode(connector, true);
+			return this.visualizerString;
+		}
+		
+		if(this.protocolString == null)
+			this.protocolString = encode(connector, false);
+		return this.protocolString;
+	}
+	
+	/**
+	 * Writes the cells of this row as the characters toString() uses for them
+	 * @param cells : array to write to
+	 * @param offset : index in cells for column 0
+	 */
+	void getCells(byte[] cells, int offset, boolean forVisualizer) {
+		for(int x=0; x < this.shapeTypes.length; x++) {
+			ShapeType shape = SHAPE_TYPES[this.shapeTypes[x]];
+			if(forVisualizer && shape != ShapeType.NONE)
+				cells[offset + x] = (byte) shape.toString().charAt(0);
+			else
+				cells[offset + x] = (byte) ('0' + getCellType(x).getCode());
+		}
+	}
+	
+	private String encode(char connector, boolean forVisualizer) {
+		StringBuilder output = new StringBuilder(this.shapeTypes.length * 2);
+		
+		for(int x=0; x < this.shapeTypes.length; x++) {
+			if(x > 0)
+				output.append(connector);
+			
+			ShapeType shape = SHAPE_TYPES[this.shapeTypes[x]];
+			if(forVisualizer && shape != ShapeType.NONE)
+				output.append(shape.toString());
+			else
+				output.append(getCellType(x).getCode());
+		}
+		
+		return output.toString();
+	}
+}
@@ -0,0 +1,69 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.field;
+
+/**
+ * FieldView interface
+ * 
+ * Read-only access to a playing field, as Java bots get it. Rows are
+ * numbered from the top, bit x of a row mask stands for column x.
+ */
+public interface FieldView {
+	
+	public int getWidth();
+	
+	public int getHeight();
+	
+	/**
+	 * @return : the state of given cell, null if it is outside of the field
+	 */
+	public CellType getCellType(int x, int y);
+	
+	/**
+	 * @return : the shape type of given cell, null if it is outside of the field
+	 */
+	public ShapeType getShapeType(int x, int y);
+	
+	/**
+	 * @return : true if the cell is a block or solid, false if it is
+	 * empty, a shape or outside of the field
+	 */
+	public boolean isOccupied(int x, int y);
+	
+	/**
+	 * @return : mask of all cells in row y that are not empty
+	 */
+	public int getRowMask(int y);
+	
+	/**
+	 * @return : mask of all cells in row y that a shape collides with
+	 */
+	public int getOccupiedMask(int y);
+	
+	/**
+	 * @return : the y of the highest block or solid cell in column x, the
+	 * field height if the column has none
+	 */
+	public int getColumnTop(int x);
+	
+	/**
+	 * @return : Zobrist hash of all cells, fields with the same cells have the same hash
+	 */
+	public long getHash();
+}
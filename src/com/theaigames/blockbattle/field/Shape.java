@@ -25,64 +25,44 @@ import com.theaigames.blockbattle.moves.MoveType;
 public class Shape {
 
 	public ShapeType type;
-	private Cell[][] shape;
-	private int size;
+	private int orientation;
 	private Point location;
-	private Cell[] blocks;
 	private Field field;
 	private boolean isFrozen;
+	private boolean isSkipped;
 	
 	public Shape(ShapeType type, Field field) {
 		this.type = type;
 		this.field = field;
-		this.blocks = new Cell[4];
+		this.orientation = 0;
 		this.isFrozen = false;
-		
-		setShape();
+		this.isSkipped = false;
 	}
 	
 	// used for cloning
-	public Shape(ShapeType type, int size, Field field, Point location, Cell[][] shape, Cell[] blocks, boolean isFrozen) {
+	public Shape(ShapeType type, Field field, Point location, int orientation, boolean isFrozen, boolean isSkipped) {
 		this.type = type;
-		this.size = size;
 		this.field = field;
 		this.location = location;
-		this.shape = shape;
-		this.blocks = blocks;
+		this.orientation = orientation;
 		this.isFrozen = isFrozen;
+		this.isSkipped = isSkipped;
 	}
 	
 	public Shape clone() {
-		Shape clone;
+		Point locationClone = null;
+		if(this.location != null)
+			locationClone = (Point) this.location.clone();
 		
-		if(this.location == null)
-			clone = new Shape(this.type, this.field);
-		else {
-			Cell[][] shapeClone = new Cell[size][size];
-			Cell[] blocksClone = new Cell[4];
-			int blockNr = 0;
-			for(int y=0; y < size; y++) {
-				for(int x=0; x < size; x++) {
-					shapeClone[x][y] = shape[x][y].clone();
-					if(shapeClone[x][y].isShape()) {
-						blocksClone[blockNr] = shapeClone[x][y];
-						blockNr++;
-					}
-				}
-			}
-			clone = new Shape(this.type, this.size, this.field, (Point) this.location.clone(), shapeClone, blocksClone, isFrozen);
-		}
-		
-		return clone;
+		return new Shape(this.type, this.field, locationClone, this.orientation, this.isFrozen, this.isSkipped);
 	}
 	
 	// spawns the shape
 	public boolean spawnShape() {
-		int x = (field.getWidth() - this.size) / 2;
+		int x = (field.getWidth() - this.type.getSize()) / 2;
 		int y = -1;
 		
 		this.location = new Point(x, y);
-		setBlockLocations();
 		
 		if(hasCollision())
 			return false;
@@ -94,79 +74,47 @@ public class Shape {
 	////// Turn actions /////
 	
 	public String turnLeft() {
-		Shape clone = this.clone();
-		
-		Cell[][] temp = clone.transposeShape();
-		for(int y=0; y < size; y++) {
-			for(int x=0; x < size; x++) {
-				clone.shape[x][y] = temp[x][size - y - 1];
-			}
-		}
-		
-		clone.setBlockLocations();
-		String error = clone.checkForPositionErrors("turnleft");
+		int turned = (this.orientation + ShapeType.ORIENTATIONS - 1) % ShapeType.ORIENTATIONS;
+		String error = checkForPositionErrors("turnleft", location.x, location.y, turned);
 		
 		if(error.isEmpty())
-			takePosition(clone);
+			takePosition(location.x, location.y, turned);
 		
 		return error;
 	}
 	
 	public String turnRight() {
-		Shape clone = this.clone();
-		
-		Cell[][] temp = clone.transposeShape();
-		for(int x=0; x < size; x++) {
-			clone.shape[x] = temp[size - x - 1];
-		}
-		
-		clone.setBlockLocations();
-		String error = clone.checkForPositionErrors("turnright");
+		int turned = (this.orientation + 1) % ShapeType.ORIENTATIONS;
+		String error = checkForPositionErrors("turnright", location.x, location.y, turned);
 		
 		if(error.isEmpty()) {
-			takePosition(clone);
+			takePosition(location.x, location.y, turned);
 		}
 		
 		return error;
 	}
 	
-	private Cell[][] transposeShape() {
-		Cell[][] temp = new Cell[size][size];
-		for(int y=0; y < size; y++) {
-			for(int x=0; x < size; x++) {
-				temp[y][x] = shape[x][y];
-			}
-		}
-		return temp;
-	}
-	
 	///////////////////////////
 	
 	///// Shift actions /////
 	
 	public String oneDown() {
-		Shape clone = this.clone();
-		
-		clone.location.y++;
-		clone.setBlockLocations();
+		int y = location.y + 1;
 		
-		if(clone.isBelowBottom() || clone.hasCollision())
+		if(isBelowBottom(y, orientation) || hasCollision(location.x, y, orientation))
 			freezeInField();
 		else
-			takePosition(clone);
+			takePosition(location.x, y, orientation);
 		
 		return ""; // can't return an error
 	}
 	
 	public String oneLeft() {
-		Shape clone = this.clone();
-		
-		clone.location.x--;
-		clone.setBlockLocations();
-		String error = clone.checkForPositionErrors("left");
+		int x = location.x - 1;
+		String error = checkForPositionErrors("left", x, location.y, orientation);
 		
 		if(error.isEmpty())
-			takePosition(clone);
+			takePosition(x, location.y, orientation);
 		else
 			oneDown();
 		
@@ -174,14 +122,11 @@ public class Shape {
 	}
 	
 	public String oneRight() {
-		Shape clone = this.clone();
-		
-		clone.location.x++;
-		clone.setBlockLocations();
-		String error = clone.checkForPositionErrors("right");
+		int x = location.x + 1;
+		String error = checkForPositionErrors("right", x, location.y, orientation);
 		
 		if(error.isEmpty())
-			takePosition(clone);
+			takePosition(x, location.y, orientation);
 		else
 			oneDown();
 		
@@ -189,84 +134,124 @@ public class Shape {
 	}
 	
 	public String drop() {
-		while(!isFrozen) {
-			oneDown();
+		if(isFrozen)
+			return ""; // can't return an error
+		
+		int[] blockX = type.blockX[orientation];
+		int[] blockY = type.blockY[orientation];
+		int distance = field.getHeight();
+		
+		// the shape lands on the highest cell below it in any of its columns
+		for(int i=0; i < blockX.length; i++) {
+			int top = field.getColumnTop(location.x + blockX[i]);
+			int y = location.y + blockY[i];
+			
+			if(y >= top) { // shape is tucked under an overhang, drop step by step
+				distance = 0;
+				while(!isBelowBottom(location.y + distance + 1, orientation)
+						&& !hasCollision(location.x, location.y + distance + 1, orientation))
+					distance++;
+				break;
+			}
+			distance = Math.min(distance, top - 1 - y);
 		}
+		
+		if(distance > 0)
+			takePosition(location.x, location.y + distance, orientation);
+		freezeInField();
+		
 		return ""; // can't return an error
 	}
 	
 	//////////// skip action /////////
 	
 	public void skip() {
+		int[] blockX = type.blockX[orientation];
+		int[] blockY = type.blockY[orientation];
 		
-		for(int i=0; i < blocks.length; i++) {
-			blocks[i].setEmpty();
-			field.setEmpty(blocks[i].getLocation());
+		for(int i=0; i < blockX.length; i++) {
+			field.setEmpty(location.x + blockX[i], location.y + blockY[i]);
 		}
 		
 		isFrozen = true;
+		isSkipped = true;
 	}
 	
 	////////////////////////////////////
 	
-	private void takePosition(Shape shape) {		
-		this.shape = shape.shape;
-		this.blocks = shape.blocks;
-		this.location = shape.location;
-		
+	private void takePosition(int x, int y, int orientation) {
 		field.cleanField();
+		
+		this.location.setLocation(x, y);
+		this.orientation = orientation;
 		setShapeInField();
 	}
 	
 	//// Position checks /////
 	
 	public boolean hasCollision() {
-		for(int i=0; i < blocks.length; i++) {
-			if(blocks[i].hasCollision(field))
-				return true;
-		}
-		return false;
+		return hasCollision(location.x, location.y, orientation);
 	}
 	
 	public boolean isBelowBottom() {
-		for(int i=0; i < blocks.length; i++) {
-			if(blocks[i].isBelowBottom(field))
-				return true;
-		}
-		return false;
+		return isBelowBottom(location.y, orientation);
 	}
 	
 	public boolean isOutOfBoundaries() {
-		for(int i=0; i < blocks.length; i++) {
-			if(blocks[i].isOutOfBoundaries(field))
-				return true;
-		}
-		return false;
+		return isOutOfBoundaries(location.x, orientation);
 	}
 	
 	public boolean isOverflowing() {
-		for(int i=0; i < blocks.length; i++) {
-			if(!blocks[i].isEmpty() && blocks[i].isOverFlowing())
+		if(isSkipped)
+			return false;
+		return location.y + type.minY[orientation] < 0;
+	}
+	
+	// checks the shape with given orientation and its box at x,y against
+	// the field, row by row
+	private boolean hasCollision(int x, int y, int orientation) {
+		int[] rowMasks = type.rowMasks[orientation];
+		
+		for(int row=0; row < rowMasks.length; row++) {
+			int fieldY = y + row;
+			if(rowMasks[row] == 0 || fieldY < 0 || fieldY >= field.getHeight())
+				continue;
+			if((shiftMask(rowMasks[row], x) & field.getOccupiedMask(fieldY)) != 0)
 				return true;
 		}
 		return false;
 	}
 	
-	private String checkForPositionErrors(String move) {
+	private boolean isBelowBottom(int y, int orientation) {
+		return y + type.maxY[orientation] >= field.getHeight();
+	}
+	
+	private boolean isOutOfBoundaries(int x, int orientation) {
+		return x + type.minX[orientation] < 0 || x + type.maxX[orientation] >= field.getWidth();
+	}
+	
+	// moves a row mask of the box to column x of the field
+	private static int shiftMask(int mask, int x) {
+		if(x >= Integer.SIZE || x <= -Integer.SIZE)
+			return 0;
+		return x >= 0 ? mask << x : mask >>> -x;
+	}
+	
+	private String checkForPositionErrors(String move, int x, int y, int orientation) {
 		String error = String.format("Can't perform %s: ", move);
 		
 		if(move.equals("left") || move.equals("right")) {
 			
-			if(isOutOfBoundaries())
+			if(isOutOfBoundaries(x, orientation))
 				return error += "Piece is on the field boundary. Action changed to 'down'.";
-			if(hasCollision())
+			if(hasCollision(x, y, orientation))
 				return error += "Other blocks are in the way. Action changed to 'down'.";
 			
 		} else if(move.equals("turnright") || move.equals("turnleft")) {
 			
-			if(isOutOfBoundaries() || isBelowBottom())
+			if(isOutOfBoundaries(x, orientation) || isBelowBottom(y, orientation))
 				return error += "Piece would move out of bounds. Move skipped.";
-			if(hasCollision())
+			if(hasCollision(x, y, orientation))
 				return error += "Other blocks are in the way. Move skipped.";
 			
 		}
@@ -312,16 +297,17 @@ public class Shape {
 //			return false;
 		
 		// check if 3/4 corners of the matrix are Blocks in the field
-		Cell[] corners = new Cell[4];
-		corners[0] = this.field.getCell(new Point(this.location.x, this.location.y));
-		corners[1] = this.field.getCell(new Point(this.location.x + 2, this.location.y));
-		corners[2] = this.field.getCell(new Point(this.location.x, this.location.y + 2));
-		corners[3] = this.field.getCell(new Point(this.location.x, this.location.y + 2));
-		
+		int x = this.location.x;
+		int y = this.location.y;
 		int counter = 0;
-		for(int i = 0; i < corners.length; i++)
-			if(corners[i] != null && corners[i].isBlock())
-				counter++;
+		if(this.field.getCellType(x, y) == CellType.BLOCK)
+			counter++;
+		if(this.field.getCellType(x + 2, y) == CellType.BLOCK)
+			counter++;
+		if(this.field.getCellType(x, y + 2) == CellType.BLOCK)
+			counter++;
+		if(this.field.getCellType(x, y + 2) == CellType.BLOCK)
+			counter++;
 		
 		if(counter == 3)
 			return true;
@@ -330,109 +316,26 @@ public class Shape {
 	}
 	
 	/////////////////////////////
-
-	private void setBlockLocations() {
-		for(int y=0; y < size; y++) {
-			for(int x=0; x < size; x++) {
-				if(shape[x][y].isShape()) {
-					shape[x][y].setLocation(location.x + x, location.y + y);
-				}
-			}
-		}
-	}
 	
 	private void freezeInField() {
-		for(int i=0; i < blocks.length; i++) {
-			field.setBlock(blocks[i].getLocation(), this.type);
+		int[] blockX = type.blockX[orientation];
+		int[] blockY = type.blockY[orientation];
+		
+		for(int i=0; i < blockX.length; i++) {
+			field.setBlock(location.x + blockX[i], location.y + blockY[i], this.type);
 		}
 		isFrozen = true;
 	}
 	
 	private void setShapeInField() {
-		for(int i=0; i < blocks.length; i++) {
-			field.setShape(blocks[i].getLocation(), this.type);
-		}
-	}
-	
-	// set shape in square box
-	private void setShape() {
-		switch(this.type) {
-			case I:
-				this.size = 4;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[0][1];
-				this.blocks[1] = this.shape[1][1];
-				this.blocks[2] = this.shape[2][1];
-				this.blocks[3] = this.shape[3][1];
-				break;
-			case J:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[0][0];
-				this.blocks[1] = this.shape[0][1];
-				this.blocks[2] = this.shape[1][1];
-				this.blocks[3] = this.shape[2][1];
-				break;
-			case L:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[2][0];
-				this.blocks[1] = this.shape[0][1];
-				this.blocks[2] = this.shape[1][1];
-				this.blocks[3] = this.shape[2][1];
-				break;
-			case O:
-				this.size = 2;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[0][0];
-				this.blocks[1] = this.shape[1][0];
-				this.blocks[2] = this.shape[0][1];
-				this.blocks[3] = this.shape[1][1];
-				break;
-			case S:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[1][0];
-				this.blocks[1] = this.shape[2][0];
-				this.blocks[2] = this.shape[0][1];
-				this.blocks[3] = this.shape[1][1];
-				break;
-			case T:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[1][0];
-				this.blocks[1] = this.shape[0][1];
-				this.blocks[2] = this.shape[1][1];
-				this.blocks[3] = this.shape[2][1];
-				break;
-			case Z:
-				this.size = 3;
-				this.shape = initializeShape();
-				this.blocks[0] = this.shape[0][0];
-				this.blocks[1] = this.shape[1][0];
-				this.blocks[2] = this.shape[1][1];
-				this.blocks[3] = this.shape[2][1];
-				break;
-			default:
-				break;
-		}
+		int[] blockX = type.blockX[orientation];
+		int[] blockY = type.blockY[orientation];
 		
-		// set type to SHAPE
-		for(int i=0; i < blocks.length; i++) {
-			this.blocks[i].setShape();
+		for(int i=0; i < blockX.length; i++) {
+			field.setShape(location.x + blockX[i], location.y + blockY[i], this.type);
 		}
 	}
 	
-	private Cell[][] initializeShape() {
-		Cell[][] newShape = new Cell[size][size];
-		for(int y=0; y < size; y++) {
-			for(int x=0; x < size; x++) {
-				newShape[x][y] = new Cell(this.type);
-			}
-		}
-		return newShape;
-	}
-	
 	public String getPositionString() {
 		return location.x + "," + location.y;
 	}
@@ -441,6 +344,14 @@ public class Shape {
 		return this.type;
 	}
 	
+	/**
+	 * @return : index into the orientation tables of the ShapeType,
+	 * 0 is the spawn orientation
+	 */
+	public int getOrientation() {
+		return this.orientation;
+	}
+	
 	public boolean isFrozen() {
 		return this.isFrozen;
 	}
@@ -448,12 +359,4 @@ public class Shape {
 	public Point getLocation() {
 		return this.location;
 	}
-	
-//	public String toString() {
-//		StringBuffer output = new StringBuffer();
-//		for(int i=0; i < blocks.length; i++) {
-//			output.append(blocks[i].getLocation().x + "," + blocks[i].getLocation().y + " ");
-//		}
-//		return output.toString();
-//	}
 }
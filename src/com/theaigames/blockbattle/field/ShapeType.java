@@ -17,20 +17,90 @@
 
 package com.theaigames.blockbattle.field;
 
-import java.security.SecureRandom;
+import java.util.SplittableRandom;
 
 public enum ShapeType {
-	I, J, L, O, S, T, Z, NONE, G; // G is garbage
+	// block locations in the spawn orientation, as x,y pairs inside the square box
+	I(4, 0,1, 1,1, 2,1, 3,1),
+	J(3, 0,0, 0,1, 1,1, 2,1),
+	L(3, 2,0, 0,1, 1,1, 2,1),
+	O(2, 0,0, 1,0, 0,1, 1,1),
+	S(3, 1,0, 2,0, 0,1, 1,1),
+	T(3, 1,0, 0,1, 1,1, 2,1),
+	Z(3, 0,0, 1,0, 1,1, 2,1),
+	NONE(0),
+	G(0); // G is garbage
+	
+	public static final int ORIENTATIONS = 4;
 	
 	private static final ShapeType[] VALUES = ShapeType.values();
-	private static final SecureRandom RANDOM = new SecureRandom();
 	private static final int SIZE_SHAPES = VALUES.length - 2;
 	
+	private final int size;
+	
+	// all indexed by orientation, orientation n + 1 is orientation n turned right
+	final int[][] blockX;
+	final int[][] blockY;
+	final int[][] rowMasks; // per row of the box, bit x set if the box has a block in column x
+	final int[] minX;
+	final int[] maxX;
+	final int[] minY;
+	final int[] maxY;
+	
+	private ShapeType(int size, int... blocks) {
+		int count = blocks.length / 2;
+		
+		this.size = size;
+		this.blockX = new int[ORIENTATIONS][count];
+		this.blockY = new int[ORIENTATIONS][count];
+		this.rowMasks = new int[ORIENTATIONS][size];
+		this.minX = new int[ORIENTATIONS];
+		this.maxX = new int[ORIENTATIONS];
+		this.minY = new int[ORIENTATIONS];
+		this.maxY = new int[ORIENTATIONS];
+		
+		for(int i=0; i < count; i++) {
+			this.blockX[0][i] = blocks[i * 2];
+			this.blockY[0][i] = blocks[i * 2 + 1];
+		}
+		
+		for(int o=0; o < ORIENTATIONS; o++) {
+			if(o > 0) { // turn the previous orientation right
+				for(int i=0; i < count; i++) {
+					this.blockX[o][i] = size - 1 - this.blockY[o - 1][i];
+					this.blockY[o][i] = this.blockX[o - 1][i];
+				}
+			}
+			
+			this.minX[o] = size;
+			this.minY[o] = size;
+			this.maxX[o] = -1;
+			this.maxY[o] = -1;
+			for(int i=0; i < count; i++) {
+				int x = this.blockX[o][i];
+				int y = this.blockY[o][i];
+				this.rowMasks[o][y] |= 1 << x;
+				this.minX[o] = Math.min(this.minX[o], x);
+				this.maxX[o] = Math.max(this.maxX[o], x);
+				this.minY[o] = Math.min(this.minY[o], y);
+				this.maxY[o] = Math.max(this.maxY[o], y);
+			}
+		}
+	}
+	
+	/**
+	 * @return : width and height of the square box the shape turns in
+	 */
+	public int getSize() {
+		return this.size;
+	}
+	
 	/**
 	 * Gets a random ShapeType, NONE and G not included
+	 * @param random : random stream to draw from
 	 * @return
 	 */
-	public static ShapeType getRandom() {
-		return VALUES[RANDOM.nextInt(SIZE_SHAPES)];
+	public static ShapeType getRandom(SplittableRandom random) {
+		return VALUES[random.nextInt(SIZE_SHAPES)];
 	}
 }
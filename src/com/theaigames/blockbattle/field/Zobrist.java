@@ -0,0 +1,119 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.field;
+
+import java.util.SplittableRandom;
+
+/**
+ * The random keys of the Zobrist hashes of fields and game states.
+ * 
+ * Every possible content of a cell in a row column has a key, a row's hash
+ * is the XOR of the keys of its cells, so changing a cell takes two XORs.
+ * Rows are moved around by reference, so a row's hash does not depend on
+ * where the row is. The field mixes it with a key per row position instead,
+ * which only has to be done again for the rows that moved.
+ * 
+ * The keys are generated from a fixed seed, so hashes are the same in every
+ * VM and can be stored. Changing how they are generated changes all hashes.
+ */
+public final class Zobrist {
+	
+	private static final long SEED = 0x426c6f636b626174L;
+	private static final int MAX_WIDTH = 32;
+	static final int MAX_HEIGHT = 64;
+	private static final int SHAPE_TYPES = ShapeType.values().length;
+	private static final int CELL_TYPES = CellType.values().length;
+	
+	private static final long[][] CELL_KEYS; // per column, per cell type and shape type
+	private static final long[] ROW_KEYS; // per row position
+	private static final long[] SHAPE_KEYS; // per shape type, for the current shape
+	private static final long[] NEXT_SHAPE_KEYS; // per shape type
+	private static final long[] PLAYER_KEYS; // per player index
+	private static final long SCORE_KEY;
+	
+	static {
+		SplittableRandom random = new SplittableRandom(SEED);
+		CELL_KEYS = new long[MAX_WIDTH][CELL_TYPES * SHAPE_TYPES];
+		for(long[] keys : CELL_KEYS)
+			fill(keys, random);
+		ROW_KEYS = fill(new long[MAX_HEIGHT], random);
+		SHAPE_KEYS = fill(new long[SHAPE_TYPES], random);
+		NEXT_SHAPE_KEYS = fill(new long[SHAPE_TYPES], random);
+		PLAYER_KEYS = fill(new long[8], random);
+		SCORE_KEY = random.nextLong();
+	}
+	
+	private Zobrist() {}
+	
+	private static long[] fill(long[] keys, SplittableRandom random) {
+		for(int i=0; i < keys.length; i++)
+			keys[i] = random.nextLong();
+		return keys;
+	}
+	
+	/**
+	 * @return : key of a cell in column x, 0 for an empty cell
+	 */
+	static long cellKey(int x, CellType cellType, ShapeType shapeType) {
+		if(cellType == CellType.EMPTY)
+			return 0;
+		return CELL_KEYS[x][cellType.ordinal() * SHAPE_TYPES + shapeType.ordinal()];
+	}
+	
+	/**
+	 * @return : what a row with given hash adds to the hash of a field at row y
+	 */
+	static long rowHash(long rowHash, int y) {
+		return mix(rowHash ^ ROW_KEYS[y]);
+	}
+	
+	/**
+	 * @return : key of a player's current shape at given location and orientation
+	 */
+	public static long shapeKey(ShapeType type, int x, int y, int orientation) {
+		return mix(SHAPE_KEYS[type.ordinal()] ^ ((x & 0xFFL) | (y & 0xFFL) << 8 | (orientation & 0xFFL) << 16));
+	}
+	
+	public static long nextShapeKey(ShapeType type) {
+		return NEXT_SHAPE_KEYS[type.ordinal()];
+	}
+	
+	/**
+	 * @return : key of the scores of a player
+	 */
+	public static long scoreKey(int combo, int skips, int rowPoints) {
+		return mix(mix(mix(SCORE_KEY ^ combo) ^ skips) ^ rowPoints);
+	}
+	
+	/**
+	 * @return : what the state hash of a player adds to the hash of the game
+	 */
+	public static long playerHash(long stateHash, int player) {
+		return mix(stateHash ^ PLAYER_KEYS[player % PLAYER_KEYS.length] ^ player);
+	}
+	
+	/**
+	 * The finalizer of SplitMix64, spreads every bit of value over the whole result
+	 */
+	public static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+}
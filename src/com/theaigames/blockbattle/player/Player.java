@@ -17,12 +17,13 @@
 
 package com.theaigames.blockbattle.player;
 
+import java.awt.Point;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import com.theaigames.blockbattle.field.Field;
 import com.theaigames.blockbattle.field.Shape;
 import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.field.Zobrist;
 import com.theaigames.blockbattle.moves.Move;
 import com.theaigames.engine.io.IOPlayerable;
 import com.theaigames.game.player.AbstractPlayer;
@@ -39,8 +40,10 @@ public class Player extends AbstractPlayer {
 	private int combo;
 	private int rowsRemoved;
 	private int skips;
-	private HashMap<Integer, ArrayList<PlayerState>> playedGame;
+	private PlayerStateHistory playedGame;
+	private boolean recordHistory;
 	private Player opponent;
+	private byte[] encodedUpdates;
 
 	public Player(String name, IOPlayerable bot, long maxTimeBank, long timePerMove, Field field) {
 		super(name, bot, maxTimeBank, timePerMove);
@@ -48,19 +51,40 @@ public class Player extends AbstractPlayer {
 		this.rowPoints = 0;
 		this.combo = 0;
 		this.skips = 0;
-		this.playedGame = new HashMap<Integer, ArrayList<PlayerState>>();
+		this.playedGame = new PlayerStateHistory(field.getWidth(), field.getHeight());
+		this.recordHistory = true;
 		this.performedTSpin = false;
 		this.fieldCleared = false;
 		this.usedSkip = false;
 	}
 	
 	public void addPlayerState(int round, Move move, ShapeType nextShape) {
-		PlayerState moveResult = new PlayerState(round, move, this.combo, this.skips, this.rowPoints, nextShape, this.field.toString(false, true));
+		if(this.recordHistory)
+			this.playedGame.add(round, move, this.combo, this.skips, this.rowPoints, nextShape, this.field);
+	}
+	
+	/**
+	 * @param recordHistory : false to not keep the states of the game, when
+	 * nobody is going to look at them
+	 */
+	public void setRecordHistory(boolean recordHistory) {
+		this.recordHistory = recordHistory;
+	}
+	
+	/**
+	 * Zobrist hash of everything that makes up the state of this player: the
+	 * field, the current shape and where it is, the next shape and the scores
+	 * @param nextShape : the shape of the next round
+	 */
+	public long getStateHash(ShapeType nextShape) {
+		long hash = this.field.getHash() ^ Zobrist.nextShapeKey(nextShape) 
+				^ Zobrist.scoreKey(this.combo, this.skips, this.rowPoints);
 		
-		if(round >= this.playedGame.size()) 
-			this.playedGame.put(round, new ArrayList<PlayerState>());
-		
-		this.playedGame.get(round).add(moveResult);
+		if(this.currentShape != null) {
+			Point location = this.currentShape.getLocation();
+			hash ^= Zobrist.shapeKey(this.currentShape.getType(), location.x, location.y, this.currentShape.getOrientation());
+		}
+		return hash;
 	}
 	
 	public void setOpponent(ArrayList<Player> players) {
@@ -151,7 +175,18 @@ public class Player extends AbstractPlayer {
 		return this.rowsRemoved;
 	}
 	
-	public HashMap<Integer, ArrayList<PlayerState>> getPlayedGame() {
+	/**
+	 * @param encodedUpdates : this round's updates about this player, shared by all players they are sent to
+	 */
+	public void setEncodedUpdates(byte[] encodedUpdates) {
+		this.encodedUpdates = encodedUpdates;
+	}
+	
+	public byte[] getEncodedUpdates() {
+		return this.encodedUpdates;
+	}
+	
+	public PlayerStateHistory getPlayedGame() {
 		return this.playedGame;
 	}
 }
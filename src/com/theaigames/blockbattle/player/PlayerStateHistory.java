@@ -0,0 +1,193 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.moves.Move;
+
+/**
+ * Stores all states of one player during the game.
+ * 
+ * Instead of a full field string per state, the field is stored as a
+ * keyframe every KEYFRAME_INTERVAL states and as the list of changed
+ * cells for the states in between. A PlayerState with the full field is
+ * only rebuilt when it is asked for.
+ */
+public class PlayerStateHistory {
+	
+	private static final int KEYFRAME_INTERVAL = 32;
+	private static final ShapeType[] SHAPE_TYPES = ShapeType.values();
+	
+	private final int width;
+	private final int height;
+	private int size;
+	
+	// per state
+	private int[] rounds;
+	private int[] combos;
+	private int[] skips;
+	private int[] points;
+	private byte[] nextShapes;
+	private Move[] moves;
+	private int[] diffStarts; // index into the diff arrays where the changes of a state start
+	
+	// changed cells of all states that are not keyframes
+	private short[] diffCells;
+	private byte[] diffValues;
+	private int diffSize;
+	
+	private ArrayList<byte[]> keyframes;
+	private byte[] lastCells;
+	private byte[] cells;
+	
+	public PlayerStateHistory(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.size = 0;
+		this.rounds = new int[64];
+		this.combos = new int[64];
+		this.skips = new int[64];
+		this.points = new int[64];
+		this.nextShapes = new byte[64];
+		this.moves = new Move[64];
+		this.diffStarts = new int[65];
+		this.diffCells = new short[256];
+		this.diffValues = new byte[256];
+		this.diffSize = 0;
+		this.keyframes = new ArrayList<byte[]>();
+		this.lastCells = new byte[width * height];
+		this.cells = new byte[width * height];
+	}
+	
+	/**
+	 * Stores the current state of a player
+	 */
+	public void add(int round, Move move, int combo, int skips, int points, ShapeType nextShape, Field field) {
+		if(this.size == this.rounds.length)
+			grow();
+		
+		int index = this.size;
+		this.rounds[index] = round;
+		this.moves[index] = move;
+		this.combos[index] = combo;
+		this.skips[index] = skips;
+		this.points[index] = points;
+		this.nextShapes[index] = (byte) nextShape.ordinal();
+		
+		field.getCells(this.cells, true);
+		
+		if(index % KEYFRAME_INTERVAL == 0) {
+			this.keyframes.add(this.cells.clone());
+		} else {
+			for(int i=0; i < this.cells.length; i++) {
+				if(this.cells[i] != this.lastCells[i])
+					addDiff(i, this.cells[i]);
+			}
+		}
+		this.diffStarts[index + 1] = this.diffSize;
+		
+		byte[] temp = this.lastCells;
+		this.lastCells = this.cells;
+		this.cells = temp;
+		this.size++;
+	}
+	
+	private void addDiff(int cell, byte value) {
+		if(this.diffSize == this.diffCells.length) {
+			this.diffCells = Arrays.copyOf(this.diffCells, this.diffSize * 2);
+			this.diffValues = Arrays.copyOf(this.diffValues, this.diffSize * 2);
+		}
+		this.diffCells[this.diffSize] = (short) cell;
+		this.diffValues[this.diffSize] = value;
+		this.diffSize++;
+	}
+	
+	private void grow() {
+		int capacity = this.rounds.length * 2;
+		this.rounds = Arrays.copyOf(this.rounds, capacity);
+		this.combos = Arrays.copyOf(this.combos, capacity);
+		this.skips = Arrays.copyOf(this.skips, capacity);
+		this.points = Arrays.copyOf(this.points, capacity);
+		this.nextShapes = Arrays.copyOf(this.nextShapes, capacity);
+		this.moves = Arrays.copyOf(this.moves, capacity);
+		this.diffStarts = Arrays.copyOf(this.diffStarts, capacity + 1);
+	}
+	
+	/**
+	 * @return : the number of stored states
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Rebuilds the field of given state
+	 * @param index : index of the state
+	 * @param cells : array of at least width * height bytes to write the cells to,
+	 * in the format of Field.getCells()
+	 */
+	public void getCells(int index, byte[] cells) {
+		if(index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("No state " + index);
+		
+		int keyframe = index / KEYFRAME_INTERVAL;
+		System.arraycopy(this.keyframes.get(keyframe), 0, cells, 0, this.width * this.height);
+		
+		for(int i = this.diffStarts[keyframe * KEYFRAME_INTERVAL + 1]; i < this.diffStarts[index + 1]; i++)
+			cells[this.diffCells[i]] = this.diffValues[i];
+	}
+	
+	/**
+	 * @return : the field string of given state, as Field.toString(false, true)
+	 */
+	public String getFieldString(int index) {
+		byte[] cells = new byte[this.width * this.height];
+		getCells(index, cells);
+		return Field.toString(cells, this.width, this.height);
+	}
+	
+	/**
+	 * @return : the complete state with given index, including its field
+	 */
+	public PlayerState getState(int index) {
+		return new PlayerState(this.rounds[index], this.moves[index], this.combos[index], this.skips[index],
+				this.points[index], SHAPE_TYPES[this.nextShapes[index]], getFieldString(index));
+	}
+	
+	/**
+	 * @return : all states stored in given round, in order
+	 */
+	public ArrayList<PlayerState> getStates(int round) {
+		ArrayList<PlayerState> states = new ArrayList<PlayerState>();
+		
+		int index = Arrays.binarySearch(this.rounds, 0, this.size, round);
+		if(index < 0)
+			return states;
+		while(index > 0 && this.rounds[index - 1] == round)
+			index--;
+		
+		for(; index < this.size && this.rounds[index] == round; index++)
+			states.add(getState(index));
+		
+		return states;
+	}
+}
@@ -0,0 +1,268 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.theaigames.blockbattle.moves.MoveType;
+
+/**
+ * MoveLog class
+ * 
+ * The smallest possible record of a game: its seed and settings, and the
+ * moves every player made each round. Games are deterministic given those,
+ * so a MoveLogReplayer can rebuild any state of the game from them. A hash
+ * of the state at the end of every round is kept too, so a ReplayVerifier
+ * can check that playing the game again still ends up the same.
+ * 
+ * Format (big endian):
+ *   int MAGIC, short VERSION, long seed, short field width, short field height,
+ *   int timebank, int time per move, byte number of players,
+ *   per player: UTF name (as DataOutput.writeUTF),
+ *   byte state hash algorithm (see StateHash, NONE in version 1 logs),
+ *   int number of rounds, per round: per player a byte number of moves,
+ *   followed by the move types packed two per byte (the first in the high nibble),
+ *   then the long state hash of the round, unless the algorithm is NONE
+ */
+public class MoveLog {
+	
+	public static final int MAGIC = 0x42424D4C; // "BBML"
+	public static final short VERSION = 2;
+	
+	private static final MoveType[] MOVE_TYPES = MoveType.values();
+	private static final MoveType[] NO_MOVES = new MoveType[0];
+	
+	private long seed;
+	private int width;
+	private int height;
+	private long timebank;
+	private long timePerMove;
+	private List<String> playerNames;
+	private List<MoveType[][]> rounds; // per round, per player
+	private byte hashAlgorithm;
+	private long[] stateHashes; // per round
+	
+	public MoveLog(long seed, int width, int height, long timebank, long timePerMove, List<String> playerNames) {
+		this.seed = seed;
+		this.width = width;
+		this.height = height;
+		this.timebank = timebank;
+		this.timePerMove = timePerMove;
+		this.playerNames = new ArrayList<String>(playerNames);
+		this.rounds = new ArrayList<MoveType[][]>();
+		this.hashAlgorithm = StateHash.ZOBRIST;
+		this.stateHashes = new long[64];
+	}
+	
+	/**
+	 * Adds the moves of the next round
+	 * @param moves : per player the moves that were made, in player order
+	 */
+	public void addRound(MoveType[][] moves) {
+		if(moves.length != this.playerNames.size())
+			throw new IllegalArgumentException("Every player needs moves.");
+		this.rounds.add(moves);
+		if(this.rounds.size() > this.stateHashes.length)
+			this.stateHashes = Arrays.copyOf(this.stateHashes, this.stateHashes.length * 2);
+	}
+	
+	/**
+	 * Sets the hash of the state at the end of a round that was added
+	 * @param round : round number, starting at 1
+	 * @param hash : hash computed with the log's algorithm
+	 */
+	public void setStateHash(int round, long hash) {
+		this.stateHashes[round - 1] = hash;
+	}
+	
+	/**
+	 * @param round : round number, starting at 1
+	 * @return : hash of the state at the end of the round, 0 if the log has none
+	 */
+	public long getStateHash(int round) {
+		return this.stateHashes[round - 1];
+	}
+	
+	/**
+	 * @return : id of the algorithm the state hashes are computed with, StateHash.NONE if there are none
+	 */
+	public byte getHashAlgorithm() {
+		return this.hashAlgorithm;
+	}
+	
+	/**
+	 * Sets the algorithm to compute state hashes with, has to be set before any rounds are added
+	 * @param hashAlgorithm : id of a StateHash algorithm
+	 */
+	public void setHashAlgorithm(byte hashAlgorithm) {
+		this.hashAlgorithm = hashAlgorithm;
+	}
+	
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	public int getWidth() {
+		return this.width;
+	}
+	
+	public int getHeight() {
+		return this.height;
+	}
+	
+	public long getTimebank() {
+		return this.timebank;
+	}
+	
+	public long getTimePerMove() {
+		return this.timePerMove;
+	}
+	
+	public List<String> getPlayerNames() {
+		return Collections.unmodifiableList(this.playerNames);
+	}
+	
+	/**
+	 * @return : number of rounds moves were made in
+	 */
+	public int getRoundCount() {
+		return this.rounds.size();
+	}
+	
+	/**
+	 * @param round : round number, starting at 1
+	 * @param player : index of the player
+	 * @return : the moves the player made, none if the round was not recorded
+	 */
+	public MoveType[] getMoves(int round, int player) {
+		if(round < 1 || round > this.rounds.size())
+			return NO_MOVES;
+		return this.rounds.get(round - 1)[player].clone();
+	}
+	
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + this.rounds.size() * 16);
+		try(DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeLong(this.seed);
+			out.writeShort(this.width);
+			out.writeShort(this.height);
+			out.writeInt((int) this.timebank);
+			out.writeInt((int) this.timePerMove);
+			out.writeByte(this.playerNames.size());
+			for(String name : this.playerNames)
+				out.writeUTF(name);
+			out.writeByte(this.hashAlgorithm);
+			
+			out.writeInt(this.rounds.size());
+			for(int r=0; r < this.rounds.size(); r++) {
+				for(MoveType[] moves : this.rounds.get(r)) {
+					out.writeByte(moves.length);
+					for(int i=0; i < moves.length; i += 2) {
+						int high = moves[i].ordinal();
+						int low = i + 1 < moves.length ? moves[i + 1].ordinal() : 0;
+						out.writeByte(high << 4 | low);
+					}
+				}
+				if(this.hashAlgorithm != StateHash.NONE)
+					out.writeLong(this.stateHashes[r]);
+			}
+		} catch(IOException e) {
+			throw new IllegalStateException(e); // can't happen in memory
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Reads a move log from a buffer, for instance a game of a ReplayArchive
+	 * @param buffer : the move log, from its position to its limit
+	 */
+	public static MoveLog fromBuffer(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return fromBytes(bytes);
+	}
+	
+	public static MoveLog fromBytes(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		
+		if(in.readInt() != MAGIC)
+			throw new IOException("Not a move log.");
+		short version = in.readShort();
+		if(version < 1 || version > VERSION)
+			throw new IOException("Unsupported move log version " + version + ".");
+		
+		long seed = in.readLong();
+		int width = in.readShort();
+		int height = in.readShort();
+		long timebank = in.readInt();
+		long timePerMove = in.readInt();
+		int playerCount = in.readUnsignedByte();
+		List<String> names = new ArrayList<String>();
+		for(int i=0; i < playerCount; i++)
+			names.add(in.readUTF());
+		
+		MoveLog log = new MoveLog(seed, width, height, timebank, timePerMove, names);
+		log.setHashAlgorithm(version >= 2 ? in.readByte() : StateHash.NONE);
+		int roundCount = in.readInt();
+		for(int r=0; r < roundCount; r++) {
+			MoveType[][] round = new MoveType[playerCount][];
+			for(int p=0; p < playerCount; p++) {
+				MoveType[] moves = new MoveType[in.readUnsignedByte()];
+				for(int i=0; i < moves.length; i += 2) {
+					int packed = in.readUnsignedByte();
+					moves[i] = moveType(packed >> 4);
+					if(i + 1 < moves.length)
+						moves[i + 1] = moveType(packed & 0xF);
+				}
+				round[p] = moves;
+			}
+			log.addRound(round);
+			if(log.hashAlgorithm != StateHash.NONE)
+				log.setStateHash(r + 1, in.readLong());
+		}
+		return log;
+	}
+	
+	private static MoveType moveType(int ordinal) throws IOException {
+		if(ordinal >= MOVE_TYPES.length)
+			throw new IOException("Unknown move type " + ordinal + ".");
+		return MOVE_TYPES[ordinal];
+	}
+	
+	public void write(Path file) throws IOException {
+		Files.write(file, toBytes());
+	}
+	
+	public static MoveLog read(Path file) throws IOException {
+		return fromBytes(Files.readAllBytes(file));
+	}
+}
@@ -0,0 +1,140 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.replay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.theaigames.blockbattle.Blockbattle;
+import com.theaigames.blockbattle.GameRandom;
+import com.theaigames.blockbattle.Processor;
+import com.theaigames.blockbattle.bot.BlockbattleBot;
+import com.theaigames.blockbattle.bot.DirectIOPlayer;
+import com.theaigames.blockbattle.bot.GameView;
+import com.theaigames.blockbattle.moves.MoveType;
+import com.theaigames.blockbattle.player.Player;
+import com.theaigames.engine.io.IOPlayerable;
+
+/**
+ * MoveLogReplayer class
+ * 
+ * Plays a game from its move log again, without bots or output, to rebuild
+ * its state at any round. The game is set up exactly like Blockbattle does,
+ * so the shapes and garbage lines come out the same.
+ * 
+ * Seeking forward plays the rounds in between, seeking back starts over.
+ */
+public class MoveLogReplayer {
+	
+	private MoveLog log;
+	private List<Player> players;
+	private Processor processor;
+	private int round;
+	private boolean recordHistory;
+	
+	public MoveLogReplayer(MoveLog log) {
+		this(log, true);
+	}
+	
+	/**
+	 * @param recordHistory : false to only keep the current state of the game,
+	 * which is much faster when the history is not needed
+	 */
+	public MoveLogReplayer(MoveLog log, boolean recordHistory) {
+		this.log = log;
+		this.recordHistory = recordHistory;
+		restart();
+	}
+	
+	private void restart() {
+		GameRandom random = new GameRandom(this.log.getSeed());
+		
+		List<IOPlayerable> bots = new ArrayList<IOPlayerable>();
+		for(int i=0; i < this.log.getPlayerNames().size(); i++)
+			bots.add(new DirectIOPlayer(new RecordedBot(this.log, i), i + ""));
+		
+		this.players = Blockbattle.createPlayers(bots, random, this.log.getWidth(), this.log.getHeight(),
+				this.log.getTimebank(), this.log.getTimePerMove());
+		for(Player player : this.players)
+			player.setRecordHistory(this.recordHistory);
+		
+		this.processor = new Processor(this.players, this.log.getWidth(), this.log.getHeight(), random);
+		this.processor.setVerbose(false);
+		this.round = 0;
+	}
+	
+	/**
+	 * Rebuilds the game as it was at the end of given round
+	 * @param round : round number, 0 for the start of the game
+	 */
+	public void seek(int round) {
+		if(round < this.round)
+			restart();
+		
+		while(this.round < round && !this.processor.isGameOver()) {
+			this.round++;
+			this.processor.playRound(this.round);
+		}
+	}
+	
+	/**
+	 * Plays the game to its end. The last round can end before any moves are
+	 * made, when a new shape does not fit, so it is not in the log.
+	 */
+	public void seekEnd() {
+		seek(this.log.getRoundCount() + 1);
+	}
+	
+	/**
+	 * @return : the last round that was played
+	 */
+	public int getRound() {
+		return this.round;
+	}
+	
+	/**
+	 * @return : the players with their fields and scores, their state history
+	 * holds every state of the game up to the current round if it is recorded
+	 */
+	public List<Player> getPlayers() {
+		return this.players;
+	}
+	
+	public Processor getProcessor() {
+		return this.processor;
+	}
+	
+	// plays the moves of a player from the log
+	private static class RecordedBot implements BlockbattleBot {
+		
+		private MoveLog log;
+		private int player;
+		
+		RecordedBot(MoveLog log, int player) {
+			this.log = log;
+			this.player = player;
+		}
+		
+		@Override
+		public List<MoveType> chooseMoves(GameView view) {
+			return Arrays.asList(this.log.getMoves(view.getRound(), this.player));
+		}
+	}
+}
@@ -0,0 +1,257 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * ReplayArchive class
+ * 
+ * Packs the records of many games (move logs or replays) into a few large
+ * segment files in one directory, instead of a file per game. Games are only
+ * appended. Every game gets the next id, starting at 0, and the index file
+ * maps it to its place: per game an int segment number, a long offset and an
+ * int length, after an int INDEX_MAGIC header.
+ * 
+ * A record is written to its segment before its index entry, so a game that
+ * is in the index is always complete. Appending locks the index file, so
+ * several processes can add games to the same archive. Reading maps the
+ * segments into memory, the games are returned as slices of those maps.
+ */
+public class ReplayArchive implements Closeable {
+	
+	public static final int INDEX_MAGIC = 0x42424152; // "BBAR"
+	public static final long MAX_SEGMENT_SIZE = 1L << 30;
+	
+	private static final String INDEX_FILE = "index.bin";
+	private static final int ENTRY_SIZE = 16;
+	private static final Map<Path, ReplayArchive> OPEN = new HashMap<Path, ReplayArchive>();
+	
+	private Path directory;
+	private FileChannel index;
+	private int count;
+	private int[] segments; // per game
+	private long[] offsets;
+	private int[] lengths;
+	private List<MappedByteBuffer> maps; // per segment, null if not mapped yet
+	
+	private ReplayArchive(Path directory) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+		this.index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE, 
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.count = 0;
+		this.segments = new int[64];
+		this.offsets = new long[64];
+		this.lengths = new int[64];
+		this.maps = new ArrayList<MappedByteBuffer>();
+		
+		FileLock lock = this.index.lock();
+		try {
+			if(this.index.size() == 0) {
+				ByteBuffer header = ByteBuffer.allocate(4);
+				header.putInt(INDEX_MAGIC).flip();
+				this.index.write(header, 0);
+			}
+			ByteBuffer header = ByteBuffer.allocate(4);
+			this.index.read(header, 0);
+			if(header.getInt(0) != INDEX_MAGIC)
+				throw new IOException("Not a replay archive: " + directory);
+			readIndex();
+		} finally {
+			lock.release();
+		}
+	}
+	
+	/**
+	 * Opens the archive in given directory, creating it if there is none.
+	 * All users of an archive in this VM share one instance.
+	 */
+	public static ReplayArchive open(Path directory) throws IOException {
+		Path key = directory.toAbsolutePath().normalize();
+		synchronized(OPEN) {
+			ReplayArchive archive = OPEN.get(key);
+			if(archive == null) {
+				archive = new ReplayArchive(key);
+				OPEN.put(key, archive);
+			}
+			return archive;
+		}
+	}
+	
+	// reads the index entries that were added since the last read,
+	// a partly written entry at the end is left for later
+	private void readIndex() throws IOException {
+		long size = this.index.size();
+		int total = (int) ((size - 4) / ENTRY_SIZE);
+		if(total <= this.count)
+			return;
+		
+		ByteBuffer entries = ByteBuffer.allocate((total - this.count) * ENTRY_SIZE);
+		long position = 4 + (long) this.count * ENTRY_SIZE;
+		while(entries.hasRemaining()) {
+			int read = this.index.read(entries, position + entries.position());
+			if(read < 0)
+				throw new IOException("Index ended early.");
+		}
+		entries.flip();
+		
+		ensureCapacity(total);
+		while(entries.hasRemaining()) {
+			this.segments[this.count] = entries.getInt();
+			this.offsets[this.count] = entries.getLong();
+			this.lengths[this.count] = entries.getInt();
+			this.count++;
+		}
+	}
+	
+	private void ensureCapacity(int games) {
+		if(games <= this.segments.length)
+			return;
+		int capacity = Math.max(games, this.segments.length * 2);
+		this.segments = Arrays.copyOf(this.segments, capacity);
+		this.offsets = Arrays.copyOf(this.offsets, capacity);
+		this.lengths = Arrays.copyOf(this.lengths, capacity);
+	}
+	
+	private Path segmentFile(int segment) {
+		return this.directory.resolve(String.format("segment-%05d.bin", segment));
+	}
+	
+	/**
+	 * Adds a game to the archive
+	 * @param record : the game's move log or replay
+	 * @return : the id of the game
+	 */
+	public synchronized long append(byte[] record) throws IOException {
+		FileLock lock = this.index.lock();
+		try {
+			readIndex(); // other processes could have added games
+			
+			// the last segment, or a new one when it is full
+			int segment = this.count == 0 ? 0 : this.segments[this.count - 1];
+			Path file = segmentFile(segment);
+			long offset = Files.exists(file) ? Files.size(file) : 0;
+			if(offset > 0 && offset + record.length > MAX_SEGMENT_SIZE) {
+				segment++;
+				file = segmentFile(segment);
+				offset = 0;
+			}
+			
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				ByteBuffer bytes = ByteBuffer.wrap(record);
+				while(bytes.hasRemaining())
+					channel.write(bytes, offset + bytes.position());
+			}
+			
+			ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+			entry.putInt(segment).putLong(offset).putInt(record.length).flip();
+			long position = 4 + (long) this.count * ENTRY_SIZE;
+			while(entry.hasRemaining())
+				this.index.write(entry, position + entry.position());
+			
+			ensureCapacity(this.count + 1);
+			this.segments[this.count] = segment;
+			this.offsets[this.count] = offset;
+			this.lengths[this.count] = record.length;
+			return this.count++;
+		} finally {
+			lock.release();
+		}
+	}
+	
+	/**
+	 * @return : number of games in the archive, including the ones other processes added
+	 */
+	public synchronized int getGameCount() throws IOException {
+		readIndex();
+		return this.count;
+	}
+	
+	/**
+	 * Returns a game without copying it
+	 * @param id : id of the game
+	 * @return : read-only buffer with the game's record, positioned at its start
+	 */
+	public synchronized ByteBuffer getGame(long id) throws IOException {
+		if(id >= this.count)
+			readIndex();
+		if(id < 0 || id >= this.count)
+			throw new IndexOutOfBoundsException("No game " + id + " in the archive.");
+		
+		int game = (int) id;
+		long end = this.offsets[game] + this.lengths[game];
+		ByteBuffer slice = map(this.segments[game], end).duplicate();
+		slice.position((int) this.offsets[game]);
+		slice.limit((int) end);
+		return slice.slice();
+	}
+	
+	/**
+	 * Passes every game with its id to given consumer, in the order they were added
+	 */
+	public void forEachGame(BiConsumer<Long, ByteBuffer> consumer) throws IOException {
+		int games = getGameCount();
+		for(long id=0; id < games; id++)
+			consumer.accept(id, getGame(id));
+	}
+	
+	// maps a segment, again if it grew past the mapped part
+	private MappedByteBuffer map(int segment, long end) throws IOException {
+		while(this.maps.size() <= segment)
+			this.maps.add(null);
+		
+		MappedByteBuffer map = this.maps.get(segment);
+		if(map == null || map.capacity() < end) {
+			try(FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.READ)) {
+				map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			this.maps.set(segment, map);
+		}
+		return map;
+	}
+	
+	/**
+	 * Closes the archive for everyone in this VM that opened it
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized(OPEN) {
+			OPEN.remove(this.directory);
+		}
+		synchronized(this) {
+			this.maps.clear();
+			this.index.close();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.replay;
+
+/**
+ * Constants of the binary replay format. All numbers are big endian.
+ * 
+ * Header:
+ *   int MAGIC, short VERSION, long seed, short field width, short field height,
+ *   int timebank, int time per move, short keyframe interval, byte number of players,
+ *   per player: string name
+ * 
+ * Followed by records, each starting with a tag byte:
+ *   ROUND:    int round number, all following states belong to this round
+ *   STATE:    byte player, byte move type (NO_MOVE if none), string illegal move message
+ *             (only if there is a move), short combo, short skips, int points,
+ *             byte next shape type, short number of changed cells,
+ *             per changed cell: short cell index (y * width + x), byte cell character
+ *   KEYFRAME: like STATE, but with an int round number after the player and all
+ *             width * height cell characters instead of the changed cells
+ *   END:      byte winner (NO_WINNER for a draw), int number of rounds
+ * 
+ * Every keyframe interval'th state of a player (starting with the first) is a
+ * KEYFRAME, so any state can be rebuilt from the keyframe before it.
+ * 
+ * After the records comes the index of all keyframes:
+ *   int number of keyframes, per keyframe: byte player, int state number of
+ *   the player, int round, long file offset of the record,
+ *   followed by per player: int number of states
+ * and the footer: long file offset of the index, int FOOTER_MAGIC.
+ * 
+ * A string is a short byte length followed by its UTF-8 bytes. Changed cells
+ * are relative to the previous state of the same player. Cell characters are
+ * the ones Field.toString(false, true) uses, and move and shape types are
+ * stored by their ordinal.
+ */
+public final class ReplayFormat {
+	
+	public static final int MAGIC = 0x42425250; // "BBRP"
+	public static final int FOOTER_MAGIC = 0x42424958; // "BBIX"
+	public static final short VERSION = 2;
+	public static final int KEYFRAME_INTERVAL = 32;
+	public static final int HEADER_SIZE = 29; // the header up to the player names
+	public static final int FOOTER_SIZE = 12;
+	
+	public static final byte ROUND = 1;
+	public static final byte STATE = 2;
+	public static final byte END = 3;
+	public static final byte KEYFRAME = 4;
+	
+	public static final byte NO_MOVE = -1;
+	public static final byte NO_WINNER = -1;
+	
+	private ReplayFormat() {}
+}
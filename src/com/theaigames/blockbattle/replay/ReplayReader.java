@@ -0,0 +1,296 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a replay in the format described in ReplayFormat with random access.
+ * The file is mapped into memory, and a state is found through the keyframe
+ * index: from the keyframe before it, at most KEYFRAME_INTERVAL records of
+ * the player are applied. Seeking forward within the same keyframe interval
+ * goes on from the current state instead.
+ * 
+ * Every player has one ReplayState, which is updated on every seek of that
+ * player's states.
+ */
+public class ReplayReader implements Closeable {
+	
+	private FileChannel channel;
+	private ByteBuffer data;
+	
+	private long seed;
+	private int width;
+	private int height;
+	private long timebank;
+	private long timePerMove;
+	private int keyframeInterval;
+	private List<String> playerNames;
+	
+	private int[] stateCounts; // per player
+	private int[][] keyframeOffsets; // per player, per keyframe
+	private int[][] keyframeRounds; // per player, per keyframe
+	private ReplayState[] states; // per player
+	
+	private ReplayReader(FileChannel channel, ByteBuffer data) throws IOException {
+		this.channel = channel;
+		this.data = data;
+		
+		readHeader();
+		readIndex();
+	}
+	
+	/**
+	 * Opens a replay file, it has to be written completely
+	 * @param file : the replay file
+	 */
+	public static ReplayReader open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Replay is too large.");
+			return new ReplayReader(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Reads a replay from a buffer without copying it, for instance a game
+	 * of a ReplayArchive
+	 * @param data : the replay, from its position to its limit
+	 */
+	public static ReplayReader wrap(ByteBuffer data) throws IOException {
+		return new ReplayReader(null, data.slice());
+	}
+	
+	private void readHeader() throws IOException {
+		ByteBuffer header = this.data.duplicate();
+		if(header.getInt() != ReplayFormat.MAGIC)
+			throw new IOException("Not a replay.");
+		short version = header.getShort();
+		if(version != ReplayFormat.VERSION)
+			throw new IOException("Unsupported replay version " + version + ".");
+		
+		this.seed = header.getLong();
+		this.width = header.getShort();
+		this.height = header.getShort();
+		this.timebank = header.getInt();
+		this.timePerMove = header.getInt();
+		this.keyframeInterval = header.getShort();
+		
+		int playerCount = header.get();
+		this.playerNames = new ArrayList<String>();
+		for(int i=0; i < playerCount; i++)
+			this.playerNames.add(getString(header, header.position()));
+	}
+	
+	private void readIndex() throws IOException {
+		int footer = this.data.limit() - ReplayFormat.FOOTER_SIZE;
+		if(footer < 0 || this.data.getInt(footer + 8) != ReplayFormat.FOOTER_MAGIC)
+			throw new IOException("Replay has no index, the game was not finished.");
+		
+		ByteBuffer index = this.data.duplicate();
+		index.position((int) this.data.getLong(footer));
+		
+		int playerCount = this.playerNames.size();
+		int keyframeCount = index.getInt();
+		byte[] players = new byte[keyframeCount];
+		int[] rounds = new int[keyframeCount];
+		int[] offsets = new int[keyframeCount];
+		int[] perPlayer = new int[playerCount];
+		for(int i=0; i < keyframeCount; i++) {
+			players[i] = index.get();
+			index.getInt(); // state number, keyframes of a player are in order
+			rounds[i] = index.getInt();
+			offsets[i] = (int) index.getLong();
+			perPlayer[players[i]]++;
+		}
+		
+		this.stateCounts = new int[playerCount];
+		for(int p=0; p < playerCount; p++)
+			this.stateCounts[p] = index.getInt();
+		
+		this.keyframeOffsets = new int[playerCount][];
+		this.keyframeRounds = new int[playerCount][];
+		this.states = new ReplayState[playerCount];
+		for(int p=0; p < playerCount; p++) {
+			this.keyframeOffsets[p] = new int[perPlayer[p]];
+			this.keyframeRounds[p] = new int[perPlayer[p]];
+			this.states[p] = new ReplayState(this.data, this.width, this.height);
+			perPlayer[p] = 0;
+		}
+		for(int i=0; i < keyframeCount; i++) {
+			int p = players[i];
+			this.keyframeOffsets[p][perPlayer[p]] = offsets[i];
+			this.keyframeRounds[p][perPlayer[p]] = rounds[i];
+			perPlayer[p]++;
+		}
+	}
+	
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	public int getWidth() {
+		return this.width;
+	}
+	
+	public int getHeight() {
+		return this.height;
+	}
+	
+	public long getTimebank() {
+		return this.timebank;
+	}
+	
+	public long getTimePerMove() {
+		return this.timePerMove;
+	}
+	
+	public List<String> getPlayerNames() {
+		return Collections.unmodifiableList(this.playerNames);
+	}
+	
+	/**
+	 * @return : number of states of given player, a state at the start of
+	 * every round and one after every move
+	 */
+	public int getStateCount(int player) {
+		return this.stateCounts[player];
+	}
+	
+	/**
+	 * Seeks to a state of a player
+	 * @param player : index of the player
+	 * @param index : number of the state, 0 is the start of the game
+	 * @return : the player's state, updated by the next seek of this player
+	 */
+	public ReplayState seekState(int player, int index) {
+		if(index < 0 || index >= this.stateCounts[player])
+			throw new IndexOutOfBoundsException("State " + index + " of " + this.stateCounts[player]);
+		
+		ReplayState state = this.states[player];
+		int keyframe = index / this.keyframeInterval;
+		if(!state.isValid() || state.getIndex() > index || state.getIndex() / this.keyframeInterval != keyframe)
+			scanTo(player, this.keyframeOffsets[player][keyframe], keyframe * this.keyframeInterval, state);
+		
+		while(state.getIndex() < index)
+			scanTo(player, state.getNextPosition(), state.getIndex() + 1, state);
+		
+		return state;
+	}
+	
+	/**
+	 * Seeks to the first state of a player in given round
+	 * @param player : index of the player
+	 * @param round : the round number, 0 for the start of the game
+	 * @return : the player's state, updated by the next seek of this player
+	 */
+	public ReplayState seekRound(int player, int round) {
+		int[] rounds = this.keyframeRounds[player];
+		
+		// start at the last keyframe before the round, the round could start
+		// before the first keyframe in it
+		int low = 0;
+		int high = rounds.length;
+		while(low < high) { // first keyframe in or after the round
+			int middle = (low + high) >>> 1;
+			if(rounds[middle] < round)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		int keyframe = Math.max(low - 1, 0);
+		
+		ReplayState state = seekState(player, keyframe * this.keyframeInterval);
+		while(state.getRound() < round && state.getIndex() + 1 < this.stateCounts[player])
+			seekState(player, state.getIndex() + 1);
+		return state;
+	}
+	
+	// reads records from given position until the next state of the player,
+	// which gets state number index
+	private void scanTo(int player, int position, int index, ReplayState state) {
+		int round = state.isValid() ? state.getRound() : 0;
+		
+		while(true) {
+			byte tag = this.data.get(position);
+			if(tag == ReplayFormat.ROUND) {
+				round = this.data.getInt(position + 1);
+				position += 5;
+				continue;
+			}
+			if(tag != ReplayFormat.STATE && tag != ReplayFormat.KEYFRAME)
+				throw new IllegalStateException("No more states of player " + player + ".");
+			
+			boolean keyframe = tag == ReplayFormat.KEYFRAME;
+			int recordPlayer = this.data.get(position + 1);
+			if(keyframe)
+				round = this.data.getInt(position + 2);
+			
+			int movePosition = position + (keyframe ? 6 : 2);
+			int scalarPosition = movePosition + 1;
+			if(this.data.get(movePosition) != ReplayFormat.NO_MOVE)
+				scalarPosition += 2 + this.data.getShort(scalarPosition);
+			int cellsPosition = scalarPosition + 9;
+			
+			int next;
+			if(keyframe)
+				next = cellsPosition + this.width * this.height;
+			else
+				next = cellsPosition + 2 + 3 * this.data.getShort(cellsPosition);
+			
+			if(recordPlayer == player) {
+				state.set(index, round, movePosition, scalarPosition, next);
+				if(keyframe)
+					state.setCells(cellsPosition);
+				else
+					state.applyChanges(cellsPosition);
+				return;
+			}
+			position = next;
+		}
+	}
+	
+	static String getString(ByteBuffer buffer, int position) {
+		int length = buffer.getShort(position);
+		byte[] bytes = new byte[length];
+		for(int i=0; i < length; i++)
+			bytes[i] = buffer.get(position + 2 + i);
+		buffer.position(position + 2 + length);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if(this.channel != null)
+			this.channel.close();
+	}
+}
@@ -0,0 +1,155 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.replay;
+
+import java.nio.ByteBuffer;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.moves.MoveType;
+
+/**
+ * A state of a player in a replay, the same data a PlayerState holds. It is
+ * a view on the replay's buffer, only the field is kept as an array because
+ * it is built from the changes of the previous states. The ReplayReader
+ * moves it to another state on every seek of its player.
+ */
+public class ReplayState {
+	
+	private static final MoveType[] MOVE_TYPES = MoveType.values();
+	private static final ShapeType[] SHAPE_TYPES = ShapeType.values();
+	
+	private ByteBuffer data;
+	private int width;
+	private int height;
+	private byte[] cells;
+	private boolean valid;
+	private int index;
+	private int round;
+	private int movePosition;
+	private int scalarPosition;
+	private int nextPosition;
+	
+	ReplayState(ByteBuffer data, int width, int height) {
+		this.data = data;
+		this.width = width;
+		this.height = height;
+		this.cells = new byte[width * height];
+		this.valid = false;
+	}
+	
+	void set(int index, int round, int movePosition, int scalarPosition, int nextPosition) {
+		this.valid = true;
+		this.index = index;
+		this.round = round;
+		this.movePosition = movePosition;
+		this.scalarPosition = scalarPosition;
+		this.nextPosition = nextPosition;
+	}
+	
+	void setCells(int position) {
+		for(int i=0; i < this.cells.length; i++)
+			this.cells[i] = this.data.get(position + i);
+	}
+	
+	void applyChanges(int position) {
+		int changed = this.data.getShort(position);
+		for(int i=0; i < changed; i++) {
+			int cell = position + 2 + i * 3;
+			this.cells[this.data.getShort(cell)] = this.data.get(cell + 2);
+		}
+	}
+	
+	boolean isValid() {
+		return this.valid;
+	}
+	
+	int getNextPosition() {
+		return this.nextPosition;
+	}
+	
+	/**
+	 * @return : number of this state among the player's states
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+	
+	public int getRound() {
+		return this.round;
+	}
+	
+	/**
+	 * @return : type of the move that led to this state, null at the start of a round
+	 */
+	public MoveType getMoveType() {
+		int move = this.data.get(this.movePosition);
+		return move == ReplayFormat.NO_MOVE ? null : MOVE_TYPES[move];
+	}
+	
+	/**
+	 * @return : message why the move was illegal, empty if it was legal
+	 */
+	public String getIllegalMove() {
+		if(this.data.get(this.movePosition) == ReplayFormat.NO_MOVE)
+			return "";
+		return ReplayReader.getString(this.data.duplicate(), this.movePosition + 1);
+	}
+	
+	/**
+	 * @return : the move as PlayerState.getMoveString() returns it
+	 */
+	public String getMoveString() {
+		MoveType move = getMoveType();
+		if(move == null)
+			return "";
+		String illegalMove = getIllegalMove();
+		return illegalMove.isEmpty() ? move.toString() : illegalMove;
+	}
+	
+	public int getCombo() {
+		return this.data.getShort(this.scalarPosition);
+	}
+	
+	public int getSkips() {
+		return this.data.getShort(this.scalarPosition + 2);
+	}
+	
+	public int getPoints() {
+		return this.data.getInt(this.scalarPosition + 4);
+	}
+	
+	public ShapeType getNextShape() {
+		return SHAPE_TYPES[this.data.get(this.scalarPosition + 8)];
+	}
+	
+	/**
+	 * @return : the character of the cell, as Field.toString(false, true) uses it
+	 */
+	public char getCell(int x, int y) {
+		return (char) this.cells[y * this.width + x];
+	}
+	
+	/**
+	 * @return : the field as Field.toString(false, true) returned it
+	 */
+	public String getFieldString() {
+		return Field.toString(this.cells, this.width, this.height);
+	}
+}
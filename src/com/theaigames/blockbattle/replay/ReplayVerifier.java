@@ -0,0 +1,187 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.replay;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReplayVerifier class
+ * 
+ * Checks that games still come out the same when they are played again from
+ * their move logs, for instance after the rules of the engine were changed.
+ * Every round is played without bots, output or state history and the hash
+ * of its end state is compared with the one in the log. The games of an
+ * archive are split over a fork-join pool, so all cores are used.
+ */
+public class ReplayVerifier {
+	
+	public static final int UNVERIFIABLE = -1; // the log can't be read or has no state hashes
+	
+	private static final int GAMES_PER_TASK = 16;
+	
+	private ForkJoinPool pool;
+	private LongAdder games;
+	private LongAdder rounds;
+	
+	/**
+	 * @param parallelism : number of games to play again at the same time
+	 */
+	public ReplayVerifier(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+		this.games = new LongAdder();
+		this.rounds = new LongAdder();
+	}
+	
+	/**
+	 * Plays a game again from its log and compares the state at the end of every round
+	 * @param log : move log with state hashes
+	 * @return : the first round that does not match the log, 0 if all of them do
+	 */
+	public static int verify(MoveLog log) {
+		if(!StateHash.isSupported(log.getHashAlgorithm()))
+			throw new IllegalArgumentException("Move log has no state hashes that can be checked.");
+		
+		MoveLog replayed = new MoveLog(log.getSeed(), log.getWidth(), log.getHeight(), log.getTimebank(), 
+				log.getTimePerMove(), log.getPlayerNames());
+		replayed.setHashAlgorithm(log.getHashAlgorithm());
+		
+		MoveLogReplayer replayer = new MoveLogReplayer(log, false);
+		replayer.getProcessor().setMoveLog(replayed);
+		replayer.seekEnd();
+		
+		for(int round=1; round <= log.getRoundCount(); round++) {
+			if(round > replayed.getRoundCount() || replayed.getStateHash(round) != log.getStateHash(round))
+				return round;
+		}
+		if(replayed.getRoundCount() > log.getRoundCount()) // should have ended already
+			return log.getRoundCount() + 1;
+		return 0;
+	}
+	
+	/**
+	 * Checks all games of an archive
+	 * @return : per game that failed, the first round that does not match,
+	 * or UNVERIFIABLE
+	 */
+	public SortedMap<Long, Integer> verify(ReplayArchive archive) throws IOException {
+		SortedMap<Long, Integer> failed = new ConcurrentSkipListMap<Long, Integer>();
+		this.pool.invoke(new VerifyTask(archive, 0, archive.getGameCount(), failed));
+		return failed;
+	}
+	
+	/**
+	 * @return : number of games checked so far
+	 */
+	public long getGames() {
+		return this.games.sum();
+	}
+	
+	/**
+	 * @return : number of rounds played again so far
+	 */
+	public long getRounds() {
+		return this.rounds.sum();
+	}
+	
+	public void shutdown() {
+		this.pool.shutdown();
+	}
+	
+	// checks the games from up to to, splits itself while there are too many
+	private class VerifyTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private ReplayArchive archive;
+		private long from;
+		private long to;
+		private Map<Long, Integer> failed;
+		
+		VerifyTask(ReplayArchive archive, long from, long to, Map<Long, Integer> failed) {
+			this.archive = archive;
+			this.from = from;
+			this.to = to;
+			this.failed = failed;
+		}
+		
+		@Override
+		protected void compute() {
+			if(this.to - this.from > GAMES_PER_TASK) {
+				long middle = (this.from + this.to) >>> 1;
+				invokeAll(new VerifyTask(this.archive, this.from, middle, this.failed), 
+						new VerifyTask(this.archive, middle, this.to, this.failed));
+				return;
+			}
+			
+			for(long id = this.from; id < this.to; id++) {
+				int result;
+				try {
+					MoveLog log = MoveLog.fromBuffer(this.archive.getGame(id));
+					result = StateHash.isSupported(log.getHashAlgorithm()) ? verify(log) : UNVERIFIABLE;
+					rounds.add(log.getRoundCount());
+				} catch(IOException | RuntimeException e) {
+					System.err.println("Game " + id + ": " + e);
+					result = UNVERIFIABLE;
+				}
+				
+				games.increment();
+				if(result != 0)
+					this.failed.put(id, result);
+			}
+		}
+	}
+	
+	public static void main(String args[]) throws Exception {
+		if(args.length != 1) {
+			System.err.println("Usage: ReplayVerifier [archive directory]");
+			System.err.println("Options: -Dparallel=[games at once]");
+			System.exit(1);
+		}
+		
+		int parallel = Integer.getInteger("parallel", Runtime.getRuntime().availableProcessors());
+		ReplayVerifier verifier = new ReplayVerifier(parallel);
+		
+		SortedMap<Long, Integer> failed;
+		long startTime = System.nanoTime();
+		try(ReplayArchive archive = ReplayArchive.open(Paths.get(args[0]))) {
+			failed = verifier.verify(archive);
+		} finally {
+			verifier.shutdown();
+		}
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		
+		for(Map.Entry<Long, Integer> game : failed.entrySet()) {
+			if(game.getValue() == UNVERIFIABLE)
+				System.out.println("Game " + game.getKey() + ": can't be verified");
+			else
+				System.out.println("Game " + game.getKey() + ": differs from round " + game.getValue());
+		}
+		System.out.printf("%d games, %d rounds in %.1fs (%.0f rounds/s), %d failed\n", verifier.getGames(), 
+				verifier.getRounds(), seconds, verifier.getRounds() / seconds, failed.size());
+		if(!failed.isEmpty())
+			System.exit(1);
+	}
+}
@@ -0,0 +1,232 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+package com.theaigames.blockbattle.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.moves.Move;
+
+/**
+ * Writes a replay in the format described in ReplayFormat while the game
+ * runs. Records go through a fixed buffer into the channel, only the last
+ * field of every player and the keyframe index are kept in memory. The index
+ * is written when the writer is closed.
+ */
+public class ReplayWriter {
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+	private long written; // bytes flushed to the channel
+	private int round;
+	private byte[][] lastCells; // per player
+	private int[] stateCounts; // per player
+	private byte[] cells;
+	private List<long[]> keyframes; // player, state, round, offset
+	
+	public ReplayWriter(WritableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.round = -1;
+		this.written = 0;
+		this.keyframes = new ArrayList<long[]>();
+	}
+	
+	/**
+	 * Creates a writer for a new file, replacing an existing one
+	 * @param file : the replay file
+	 */
+	public static ReplayWriter open(Path file) throws IOException {
+		return new ReplayWriter(FileChannel.open(file, StandardOpenOption.CREATE, 
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+	}
+	
+	/**
+	 * Writes the header, has to be called before anything else
+	 */
+	public void writeHeader(long seed, int width, int height, long timebank, long timePerMove, List<String> playerNames) throws IOException {
+		this.cells = new byte[width * height];
+		this.lastCells = new byte[playerNames.size()][width * height];
+		for(byte[] playerCells : this.lastCells)
+			Arrays.fill(playerCells, (byte) '0');
+		this.stateCounts = new int[playerNames.size()];
+		
+		ensureRemaining(ReplayFormat.HEADER_SIZE);
+		this.buffer.putInt(ReplayFormat.MAGIC);
+		this.buffer.putShort(ReplayFormat.VERSION);
+		this.buffer.putLong(seed);
+		this.buffer.putShort((short) width);
+		this.buffer.putShort((short) height);
+		this.buffer.putInt((int) timebank);
+		this.buffer.putInt((int) timePerMove);
+		this.buffer.putShort((short) ReplayFormat.KEYFRAME_INTERVAL);
+		this.buffer.put((byte) playerNames.size());
+		
+		for(String name : playerNames)
+			putString(name);
+	}
+	
+	/**
+	 * Writes the state of a player after a move, or at the start of a round if move is null
+	 * @param player : index of the player
+	 */
+	public void writeState(int player, int round, Move move, int combo, int skips, int points, ShapeType nextShape, Field field) throws IOException {
+		if(round != this.round) {
+			ensureRemaining(5);
+			this.buffer.put(ReplayFormat.ROUND);
+			this.buffer.putInt(round);
+			this.round = round;
+		}
+		
+		boolean keyframe = this.stateCounts[player] % ReplayFormat.KEYFRAME_INTERVAL == 0;
+		
+		ensureRemaining(7);
+		if(keyframe) {
+			this.keyframes.add(new long[] {player, this.stateCounts[player], round, this.written + this.buffer.position()});
+			this.buffer.put(ReplayFormat.KEYFRAME);
+			this.buffer.put((byte) player);
+			this.buffer.putInt(round);
+		} else {
+			this.buffer.put(ReplayFormat.STATE);
+			this.buffer.put((byte) player);
+		}
+		this.stateCounts[player]++;
+		
+		if(move == null) {
+			this.buffer.put(ReplayFormat.NO_MOVE);
+		} else {
+			this.buffer.put((byte) move.getType().ordinal());
+			putString(move.getIllegalMove());
+		}
+		
+		ensureRemaining(11);
+		this.buffer.putShort((short) combo);
+		this.buffer.putShort((short) skips);
+		this.buffer.putInt(points);
+		this.buffer.put((byte) nextShape.ordinal());
+		
+		byte[] last = this.lastCells[player];
+		field.getCells(this.cells, true);
+		
+		if(keyframe) {
+			ensureRemaining(this.cells.length);
+			this.buffer.put(this.cells);
+			this.lastCells[player] = this.cells;
+			this.cells = last;
+			return;
+		}
+		
+		// only the cells that changed since the player's last state
+		int changed = 0;
+		for(int i=0; i < this.cells.length; i++)
+			if(this.cells[i] != last[i])
+				changed++;
+		
+		ensureRemaining(2 + changed * 3);
+		this.buffer.putShort((short) changed);
+		for(int i=0; i < this.cells.length; i++) {
+			if(this.cells[i] != last[i]) {
+				this.buffer.putShort((short) i);
+				this.buffer.put(this.cells[i]);
+			}
+		}
+		
+		this.lastCells[player] = this.cells;
+		this.cells = last;
+	}
+	
+	/**
+	 * Writes the result of the game
+	 * @param winner : index of the winning player, -1 for a draw
+	 * @param rounds : number of rounds played
+	 */
+	public void writeEnd(int winner, int rounds) throws IOException {
+		ensureRemaining(6);
+		this.buffer.put(ReplayFormat.END);
+		this.buffer.put(winner < 0 ? ReplayFormat.NO_WINNER : (byte) winner);
+		this.buffer.putInt(rounds);
+	}
+	
+	/**
+	 * Writes the keyframe index and everything that is still buffered, and closes the channel
+	 */
+	public void close() throws IOException {
+		try {
+			writeIndex();
+			flush();
+		} finally {
+			this.channel.close();
+		}
+	}
+	
+	private void writeIndex() throws IOException {
+		ensureRemaining(4);
+		long indexOffset = this.written + this.buffer.position();
+		this.buffer.putInt(this.keyframes.size());
+		
+		for(long[] keyframe : this.keyframes) {
+			ensureRemaining(17);
+			this.buffer.put((byte) keyframe[0]);
+			this.buffer.putInt((int) keyframe[1]);
+			this.buffer.putInt((int) keyframe[2]);
+			this.buffer.putLong(keyframe[3]);
+		}
+		
+		for(int stateCount : this.stateCounts) {
+			ensureRemaining(4);
+			this.buffer.putInt(stateCount);
+		}
+		
+		ensureRemaining(ReplayFormat.FOOTER_SIZE);
+		this.buffer.putLong(indexOffset);
+		this.buffer.putInt(ReplayFormat.FOOTER_MAGIC);
+	}
+	
+	private void putString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		ensureRemaining(2 + bytes.length);
+		this.buffer.putShort((short) bytes.length);
+		this.buffer.put(bytes);
+	}
+	
+	private void ensureRemaining(int bytes) throws IOException {
+		if(this.buffer.remaining() < bytes)
+			flush();
+		if(this.buffer.remaining() < bytes) // larger than the buffer, can only happen for huge fields
+			this.buffer = ByteBuffer.allocateDirect(bytes);
+	}
+	
+	private void flush() throws IOException {
+		this.buffer.flip();
+		while(this.buffer.hasRemaining())
+			this.written += this.channel.write(this.buffer);
+		this.buffer.clear();
+	}
+}
@@ -0,0 +1,118 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.replay;
+
+import java.awt.Point;
+import java.util.List;
+
+import com.theaigames.blockbattle.field.Field;
+import com.theaigames.blockbattle.field.Shape;
+import com.theaigames.blockbattle.field.ShapeType;
+import com.theaigames.blockbattle.field.Zobrist;
+import com.theaigames.blockbattle.player.Player;
+
+/**
+ * StateHash class
+ * 
+ * Fingerprints of the game state at the end of a round. A MoveLog stores one
+ * per round, so a game played again from the log can be checked against the
+ * original round by round. Every algorithm has an id that is written into
+ * the log along with the hashes, so older logs can still be checked when a
+ * new algorithm is added.
+ */
+public class StateHash {
+	
+	public static final byte NONE = 0;
+	public static final byte FNV = 1; // FNV-1a over the next shape and the cells, shape and scores of every player
+	public static final byte ZOBRIST = 2; // the Zobrist state hashes of all players (see Player.getStateHash)
+	
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	/**
+	 * @return : true if hashes of given algorithm can be computed
+	 */
+	public static boolean isSupported(byte algorithm) {
+		return algorithm == FNV || algorithm == ZOBRIST;
+	}
+	
+	/**
+	 * @param algorithm : id of the algorithm to use
+	 * @param players : all players of the game, in player order
+	 * @param nextShape : the shape of the next round
+	 * @return : hash of the current state of the game
+	 */
+	public static long hash(byte algorithm, List<Player> players, ShapeType nextShape) {
+		switch(algorithm) {
+			case FNV:
+				return fnv(players, nextShape);
+			case ZOBRIST:
+				return zobrist(players, nextShape);
+			default:
+				throw new IllegalArgumentException("Unknown state hash algorithm " + algorithm + ".");
+		}
+	}
+	
+	private static long zobrist(List<Player> players, ShapeType nextShape) {
+		long hash = 0;
+		for(int i=0; i < players.size(); i++)
+			hash ^= Zobrist.playerHash(players.get(i).getStateHash(nextShape), i);
+		return hash;
+	}
+	
+	private static long fnv(List<Player> players, ShapeType nextShape) {
+		long hash = fnv(FNV_OFFSET, nextShape.ordinal());
+		byte[] cells = null;
+		
+		for(Player player : players) {
+			Field field = player.getField();
+			int size = field.getWidth() * field.getHeight();
+			if(cells == null || cells.length < size)
+				cells = new byte[size];
+			
+			field.getCells(cells, true);
+			for(int i=0; i < size; i++)
+				hash = (hash ^ (cells[i] & 0xFF)) * FNV_PRIME;
+			
+			Shape shape = player.getCurrentShape();
+			if(shape != null) {
+				Point location = shape.getLocation();
+				hash = fnv(hash, shape.getType().ordinal());
+				hash = fnv(hash, location.x);
+				hash = fnv(hash, location.y);
+				hash = fnv(hash, shape.getOrientation());
+			}
+			
+			hash = fnv(hash, player.getCombo());
+			hash = fnv(hash, player.getSkips());
+			hash = fnv(hash, player.getRowPoints());
+		}
+		
+		return hash;
+	}
+	
+	// hashes the bytes of value, lowest first
+	private static long fnv(long hash, int value) {
+		for(int i=0; i < 4; i++) {
+			hash = (hash ^ (value & 0xFF)) * FNV_PRIME;
+			value >>>= 8;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,61 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.tournament;
+
+/**
+ * Pairing class
+ * 
+ * One game of a tournament: which bots of the roster play it and with which seed
+ */
+public class Pairing {
+	
+	private int round;
+	private int player1;
+	private int player2;
+	private long seed;
+	
+	public Pairing(int round, int player1, int player2, long seed) {
+		this.round = round;
+		this.player1 = player1;
+		this.player2 = player2;
+		this.seed = seed;
+	}
+	
+	public int getRound() {
+		return this.round;
+	}
+	
+	/**
+	 * @return : roster index of the bot that plays as player1
+	 */
+	public int getPlayer1() {
+		return this.player1;
+	}
+	
+	/**
+	 * @return : roster index of the bot that plays as player2
+	 */
+	public int getPlayer2() {
+		return this.player2;
+	}
+	
+	public long getSeed() {
+		return this.seed;
+	}
+}
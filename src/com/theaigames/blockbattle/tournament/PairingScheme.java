@@ -0,0 +1,37 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.tournament;
+
+import java.util.List;
+
+/**
+ * PairingScheme interface
+ * 
+ * Decides which bots play each other, round by round. All games of a round
+ * are played at the same time, the next round is paired once they are done.
+ */
+public interface PairingScheme {
+	
+	/**
+	 * @param round : number of the round to pair, starting at 1
+	 * @param standings : the results of all earlier rounds
+	 * @return : the games of the round, an empty list when the tournament is over
+	 */
+	public List<Pairing> pairRound(int round, Standings standings);
+}
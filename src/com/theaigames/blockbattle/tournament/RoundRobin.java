@@ -0,0 +1,77 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RoundRobin class
+ * 
+ * Every bot plays every other bot once for each of the given seeds, all in a
+ * single round. Every pair plays the same seeds, and the bots switch sides
+ * from one seed to the next.
+ */
+public class RoundRobin implements PairingScheme {
+	
+	private long[] seeds;
+	
+	/**
+	 * @param seeds : one game per pair for each seed
+	 */
+	public RoundRobin(long[] seeds) {
+		if(seeds.length == 0)
+			throw new IllegalArgumentException("A round robin needs at least one seed.");
+		this.seeds = seeds.clone();
+	}
+	
+	/**
+	 * Plays given number of games per pair, with seeds firstSeed, firstSeed + 1, ...
+	 */
+	public RoundRobin(int gamesPerPair, long firstSeed) {
+		this(consecutiveSeeds(gamesPerPair, firstSeed));
+	}
+	
+	private static long[] consecutiveSeeds(int count, long first) {
+		long[] seeds = new long[count];
+		for(int i=0; i < count; i++)
+			seeds[i] = first + i;
+		return seeds;
+	}
+	
+	@Override
+	public List<Pairing> pairRound(int round, Standings standings) {
+		List<Pairing> games = new ArrayList<Pairing>();
+		if(round > 1)
+			return games;
+		
+		int bots = standings.getBotCount();
+		for(int i=0; i < bots; i++) {
+			for(int j=i+1; j < bots; j++) {
+				for(int s=0; s < this.seeds.length; s++) {
+					if(s % 2 == 0)
+						games.add(new Pairing(round, i, j, this.seeds[s]));
+					else
+						games.add(new Pairing(round, j, i, this.seeds[s]));
+				}
+			}
+		}
+		return games;
+	}
+}
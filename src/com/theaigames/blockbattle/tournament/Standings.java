@@ -0,0 +1,155 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.theaigames.blockbattle.MatchResult;
+
+/**
+ * Standings class
+ * 
+ * The results of a tournament so far. A win counts 1, a draw 1/2. Ties are
+ * broken by the row points scored in all games. Results are added while
+ * other games are still running, so all methods are synchronized.
+ */
+public class Standings {
+	
+	private String[] names;
+	private int[] wins;
+	private int[] draws;
+	private int[] losses;
+	private int[] rowPoints;
+	private int[] player1Count;
+	private boolean[] hadBye;
+	private boolean[][] played;
+	
+	public Standings(List<String> names) {
+		int count = names.size();
+		this.names = names.toArray(new String[count]);
+		this.wins = new int[count];
+		this.draws = new int[count];
+		this.losses = new int[count];
+		this.rowPoints = new int[count];
+		this.player1Count = new int[count];
+		this.hadBye = new boolean[count];
+		this.played = new boolean[count][count];
+	}
+	
+	public int getBotCount() {
+		return this.names.length;
+	}
+	
+	public String getName(int bot) {
+		return this.names[bot];
+	}
+	
+	/**
+	 * Adds the result of a game
+	 */
+	public synchronized void addResult(Pairing pairing, MatchResult result) {
+		int player1 = pairing.getPlayer1();
+		int player2 = pairing.getPlayer2();
+		int[] points = result.getPoints();
+		
+		this.played[player1][player2] = true;
+		this.played[player2][player1] = true;
+		this.player1Count[player1]++;
+		this.rowPoints[player1] += points[0];
+		this.rowPoints[player2] += points[1];
+		
+		if(result.isDraw()) {
+			this.draws[player1]++;
+			this.draws[player2]++;
+		} else if(result.getWinner() == 0) {
+			this.wins[player1]++;
+			this.losses[player2]++;
+		} else {
+			this.wins[player2]++;
+			this.losses[player1]++;
+		}
+	}
+	
+	/**
+	 * Gives a bot a round off, which counts as a win
+	 */
+	public synchronized void addBye(int bot) {
+		this.hadBye[bot] = true;
+		this.wins[bot]++;
+	}
+	
+	public synchronized boolean hadBye(int bot) {
+		return this.hadBye[bot];
+	}
+	
+	public synchronized boolean havePlayed(int bot1, int bot2) {
+		return this.played[bot1][bot2];
+	}
+	
+	/**
+	 * @return : number of games the bot played as player1
+	 */
+	public synchronized int getPlayer1Count(int bot) {
+		return this.player1Count[bot];
+	}
+	
+	/**
+	 * @return : the score of the bot, wins count 1 and draws 1/2
+	 */
+	public synchronized double getScore(int bot) {
+		return this.wins[bot] + this.draws[bot] / 2.0;
+	}
+	
+	/**
+	 * @return : the bots from first to last place
+	 */
+	public synchronized List<Integer> getRanking() {
+		List<Integer> ranking = new ArrayList<Integer>();
+		for(int i=0; i < this.names.length; i++)
+			ranking.add(i);
+		
+		ranking.sort((a, b) -> {
+			int byScore = Integer.compare(2 * this.wins[b] + this.draws[b], 2 * this.wins[a] + this.draws[a]);
+			if(byScore != 0)
+				return byScore;
+			int byPoints = Integer.compare(this.rowPoints[b], this.rowPoints[a]);
+			if(byPoints != 0)
+				return byPoints;
+			return Integer.compare(a, b);
+		});
+		return ranking;
+	}
+	
+	/**
+	 * Returns the standings as a table, one bot per line
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder output = new StringBuilder();
+		output.append(String.format("%-4s %-20s %6s %4s %4s %4s %7s\n", "#", "bot", "score", "won", "draw", "lost", "points"));
+		
+		int place = 1;
+		for(int bot : getRanking()) {
+			output.append(String.format("%-4d %-20s %6.1f %4d %4d %4d %7d\n", place++, this.names[bot],
+					getScore(bot), this.wins[bot], this.draws[bot], this.losses[bot], this.rowPoints[bot]));
+		}
+		return output.toString();
+	}
+}
@@ -0,0 +1,87 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Swiss class
+ * 
+ * Plays a fixed number of rounds. Every round, bots with the same or a close
+ * score are paired, avoiding games that were already played where possible.
+ * With an odd number of bots, the lowest ranked bot without a bye so far gets
+ * one, which counts as a win. All games of a round use the same seed.
+ */
+public class Swiss implements PairingScheme {
+	
+	private int rounds;
+	private long firstSeed;
+	
+	/**
+	 * @param rounds : number of rounds to play
+	 * @param firstSeed : seed of the first round, the next rounds use firstSeed + 1, ...
+	 */
+	public Swiss(int rounds, long firstSeed) {
+		this.rounds = rounds;
+		this.firstSeed = firstSeed;
+	}
+	
+	@Override
+	public List<Pairing> pairRound(int round, Standings standings) {
+		List<Pairing> games = new ArrayList<Pairing>();
+		if(round > this.rounds)
+			return games;
+		
+		long seed = this.firstSeed + round - 1;
+		List<Integer> ranking = standings.getRanking();
+		
+		// give the bye to the lowest ranked bot that did not have one yet
+		if(ranking.size() % 2 == 1) {
+			int bye = ranking.size() - 1;
+			for(int i = ranking.size() - 1; i >= 0; i--) {
+				if(!standings.hadBye(ranking.get(i))) {
+					bye = i;
+					break;
+				}
+			}
+			standings.addBye(ranking.remove(bye));
+		}
+		
+		// pair from the top, with the closest bot that was not played yet
+		while(!ranking.isEmpty()) {
+			int bot = ranking.remove(0);
+			int opponent = 0;
+			for(int i=0; i < ranking.size(); i++) {
+				if(!standings.havePlayed(bot, ranking.get(i))) {
+					opponent = i;
+					break;
+				}
+			}
+			int other = ranking.remove(opponent);
+			
+			// the bot that played as player1 less often takes that side
+			if(standings.getPlayer1Count(bot) <= standings.getPlayer1Count(other))
+				games.add(new Pairing(round, bot, other, seed));
+			else
+				games.add(new Pairing(round, other, bot, seed));
+		}
+		return games;
+	}
+}
@@ -0,0 +1,180 @@
+// Copyright 2015 theaigames.com (developers@theaigames.com)
+
+//    Licensed under the Apache License, Version 2.0 (the "License");
+//    you may not use this file except in compliance with the License.
+//    You may obtain a copy of the License at
+
+//        http://www.apache.org/licenses/LICENSE-2.0
+
+//    Unless required by applicable law or agreed to in writing, software
+//    distributed under the License is distributed on an "AS IS" BASIS,
+//    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//    See the License for the specific language governing permissions and
+//    limitations under the License.
+//	
+//    For the full copyright and license information, please view the LICENSE
+//    file that was distributed with this source code.
+
+
+package com.theaigames.blockbattle.tournament;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.theaigames.blockbattle.GameRandom;
+import com.theaigames.blockbattle.MatchResult;
+import com.theaigames.blockbattle.MatchRunner;
+
+/**
+ * Tournament class
+ * 
+ * Plays the games a pairing scheme schedules for a roster of bots. The games
+ * of a round are all handed to a work-stealing pool at once, so long and
+ * short games spread over the cores by themselves. Every result is written
+ * to the results file as soon as its game is finished.
+ */
+public class Tournament {
+	
+	private static final Pattern NAMED_BOT = Pattern.compile("^([\\w.-]+)=(.+)$");
+	
+	private List<String> names;
+	private List<String> bots;
+	private PairingScheme scheme;
+	private ForkJoinPool pool;
+	private MatchRunner runner;
+	private Standings standings;
+	private BufferedWriter results;
+	
+	/**
+	 * @param names : names of the bots, as they appear in the results
+	 * @param bots : commands to start the bots, or bot class names if threaded
+	 * @param scheme : decides who plays who
+	 * @param threaded : true if the bots are classes to run on threads (see ThreadedBlockbattle)
+	 * @param parallelMatches : number of games to play at the same time
+	 */
+	public Tournament(List<String> names, List<String> bots, PairingScheme scheme, boolean threaded, int parallelMatches) {
+		if(names.size() != bots.size())
+			throw new IllegalArgumentException("Every bot needs a name.");
+		if(bots.size() < 2)
+			throw new IllegalArgumentException("A tournament needs at least two bots.");
+		
+		this.names = names;
+		this.bots = bots;
+		this.scheme = scheme;
+		this.pool = new ForkJoinPool(parallelMatches);
+		this.runner = new MatchRunner(this.pool, threaded);
+		this.standings = new Standings(names);
+	}
+	
+	/**
+	 * Plays the whole tournament
+	 * @param resultsFile : CSV file to write the result of every game to
+	 * @return : the final standings
+	 */
+	public Standings run(Path resultsFile) throws IOException {
+		try(BufferedWriter results = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8)) {
+			this.results = results;
+			writeLine("round,player1,player2,seed,winner,rounds,points1,points2,error");
+			
+			for(int round = 1; ; round++) {
+				List<Pairing> games = this.scheme.pairRound(round, this.standings);
+				if(games.isEmpty())
+					break;
+				
+				List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+				for(Pairing pairing : games)
+					tasks.add(this.pool.submit(() -> play(pairing)));
+				for(ForkJoinTask<?> task : tasks)
+					task.join();
+			}
+		} finally {
+			this.pool.shutdown();
+		}
+		return this.standings;
+	}
+	
+	private void play(Pairing pairing) {
+		String name1 = this.names.get(pairing.getPlayer1());
+		String name2 = this.names.get(pairing.getPlayer2());
+		List<String> matchBots = Arrays.asList(this.bots.get(pairing.getPlayer1()), this.bots.get(pairing.getPlayer2()));
+		
+		MatchResult result;
+		try {
+			result = this.runner.run(matchBots, pairing.getSeed(), null);
+		} catch(Exception e) {
+			e.printStackTrace();
+			writeLine(String.format("%d,%s,%s,%d,,,,,\"%s\"", pairing.getRound(), name1, name2, pairing.getSeed(),
+					String.valueOf(e).replace("\"", "\"\"")));
+			return;
+		}
+		
+		this.standings.addResult(pairing, result);
+		
+		String winner = result.isDraw() ? "" : (result.getWinner() == 0 ? name1 : name2);
+		int[] points = result.getPoints();
+		writeLine(String.format("%d,%s,%s,%d,%s,%d,%d,%d,", pairing.getRound(), name1, name2, pairing.getSeed(),
+				winner, result.getRounds(), points[0], points[1]));
+	}
+	
+	private synchronized void writeLine(String line) {
+		try {
+			this.results.write(line);
+			this.results.newLine();
+			this.results.flush();
+		} catch(IOException e) {
+			System.err.println("Writing result failed: " + e);
+		}
+	}
+	
+	public static void main(String args[]) throws Exception {
+		if(args.length < 4) {
+			System.err.println("Usage: Tournament [results.csv] [roundrobin:games per pair|swiss:rounds] [bot1] [bot2] ...");
+			System.err.println("Bots can be named with name=command. Options: -Dseed=[first seed] -Dparallel=[games at once] -Dthreaded=true");
+			System.exit(1);
+		}
+		
+		long firstSeed = Long.getLong("seed", GameRandom.newSeed());
+		int parallel = Integer.getInteger("parallel", Runtime.getRuntime().availableProcessors());
+		boolean threaded = Boolean.getBoolean("threaded");
+		
+		String[] schemeArgs = args[1].split(":");
+		int count = schemeArgs.length > 1 ? Integer.parseInt(schemeArgs[1]) : 1;
+		PairingScheme scheme;
+		if(schemeArgs[0].equals("roundrobin"))
+			scheme = new RoundRobin(count, firstSeed);
+		else if(schemeArgs[0].equals("swiss"))
+			scheme = new Swiss(count, firstSeed);
+		else
+			throw new IllegalArgumentException("Unknown pairing scheme: " + schemeArgs[0]);
+		
+		List<String> names = new ArrayList<String>();
+		List<String> bots = new ArrayList<String>();
+		for(int i=2; i < args.length; i++) {
+			Matcher named = NAMED_BOT.matcher(args[i]);
+			if(named.matches()) {
+				names.add(named.group(1));
+				bots.add(named.group(2));
+			} else {
+				names.add("bot" + (i - 1));
+				bots.add(args[i]);
+			}
+		}
+		
+		Tournament tournament = new Tournament(names, bots, scheme, threaded, parallel);
+		Standings standings = tournament.run(Paths.get(args[0]));
+		
+		System.out.println("First seed: " + firstSeed);
+		System.out.print(standings);
+	}
+}
@@ -20,6 +20,7 @@ package com.theaigames.engine;
 
 import com.theaigames.engine.io.IOPlayer;
 import com.theaigames.engine.io.IOPlayerable;
+import com.theaigames.engine.io.StreamMultiplexer;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -38,11 +39,35 @@ public class Engine {
     private boolean isRunning; // Boolean representing current engine running state
     private Logic logic; // Class implementing Logic interface; handles all data
     private ArrayList<IOPlayerable> players; // ArrayList containing player handlers
+    private StreamMultiplexer multiplexer; // Reads the bots' output if set, otherwise every bot gets reader threads
+    private boolean verbose; // Prints the bots that are started and when the game stops
     
     // Engine constructor 
     public Engine() {
         this.isRunning = false;
         this.players = new ArrayList<IOPlayerable>();
+        this.verbose = true;
+        if (Boolean.getBoolean("multiplex"))
+            this.multiplexer = StreamMultiplexer.getShared();
+    }
+    
+    /**
+     * Lets the bot processes added after this call be read by given multiplexer
+     * @param multiplexer : multiplexer to use, null to give every bot reader threads of its own
+     */
+    public void setMultiplexer(StreamMultiplexer multiplexer) {
+        this.multiplexer = multiplexer;
+    }
+    
+    /**
+     * @param verbose : false to not print anything about the game, like when many games run at once
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+    
+    public boolean isVerbose() {
+        return this.verbose;
     }
     
     /**
@@ -53,12 +78,21 @@ public class Engine {
 
         // Create new process
     	Process process = Runtime.getRuntime().exec(command);
-    	System.out.println(command);
+    	if (this.verbose)
+    		System.out.println(command);
 
         // Attach IO to process
-        IOPlayerable player = new IOPlayer(process, idString);
+        IOPlayerable player = new IOPlayer(process, idString, this.multiplexer);
         
         // Add player
+        addPlayer(player);
+    }
+    
+    /**
+     * Add a player whose IO is already set up to the game
+     * @param player : the player's IO
+     */
+    public void addPlayer(IOPlayerable player) {
         this.players.add(player);
 
         // Start running
@@ -112,7 +146,8 @@ public class Engine {
             // Check if win condition has been met
             if (this.hasEnded()) {
             	
-                System.out.println("stopping...");
+                if (this.verbose)
+                    System.out.println("stopping...");
                 
                 // Stop running
                 this.isRunning = false;
@@ -5,13 +5,60 @@ import com.theaigames.engine.io.IOPlayerable;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * @author Matthias Neugebauer
  */
 public class ThreadedEngine extends Engine {
+  private static final ThreadFactory PLATFORM_THREADS = Thread::new;
+
+  private ThreadFactory threadFactory = PLATFORM_THREADS;
+
+  public ThreadedEngine() {
+    if (Boolean.getBoolean("virtualThreads"))
+      setVirtualThreads(true);
+  }
+
+  /**
+   * Runs the bots added after this call on virtual threads, if the VM
+   * supports them, so one VM can host many more games at once
+   *
+   * @param virtualThreads : true for virtual threads, false for platform threads
+   * @return : true if the requested kind of threads is used
+   */
+  public boolean setVirtualThreads(boolean virtualThreads) {
+    if (!virtualThreads) {
+      threadFactory = PLATFORM_THREADS;
+      return true;
+    }
+
+    ThreadFactory factory = virtualThreadFactory();
+    if (factory == null) {
+      System.err.println("Virtual threads are not supported by this VM, using platform threads.");
+      return false;
+    }
+    threadFactory = factory;
+    return true;
+  }
+
+  /**
+   * @return : a factory for virtual threads, null if there are none (before
+   * Java 21). Looked up by reflection, so the engine still builds for Java 8.
+   */
+  public static ThreadFactory virtualThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
   public void addPlayer(String className, String idString) throws IOException {
-    System.out.println("Class: " + className);
+    if (isVerbose())
+      System.out.println("Class: " + className);
 
     // Pull out main method of className
     Method mainMethod;
@@ -23,7 +70,7 @@ public class ThreadedEngine extends Engine {
     }
 
     // Attach IO
-    IOPlayerable player = new ThreadedIOPlayer(mainMethod, idString);
+    IOPlayerable player = new ThreadedIOPlayer(mainMethod, idString, threadFactory);
 
     // Add player
     getPlayers().add(player);
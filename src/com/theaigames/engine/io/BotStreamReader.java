@@ -0,0 +1,32 @@
+package com.theaigames.engine.io;
+
+/**
+ * Reads one of the output streams of a bot process.
+ *
+ * Lines from the standard output are handed to the player as its response,
+ * everything that was read is kept for the bot's dump.
+ */
+interface BotStreamReader {
+
+  /**
+   * Starts reading the stream
+   */
+  void start();
+
+  /**
+   * Stops reading the stream
+   */
+  void finish();
+
+  /**
+   * @return : all the data read so far
+   */
+  String getData();
+
+  /**
+   * Tells the reader that the bot is about to be sent something it answers,
+   * so the next line should be read as soon as it arrives. Readers that block
+   * on their stream do that anyway.
+   */
+  default void expectLine() {}
+}
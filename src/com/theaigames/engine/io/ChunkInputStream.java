@@ -0,0 +1,58 @@
+package com.theaigames.engine.io;
+
+import java.io.InputStream;
+
+/**
+ * Reads the chunks of a {@link ChunkQueue} as one stream of bytes.
+ */
+class ChunkInputStream extends InputStream {
+  private final ChunkQueue queue;
+  private byte[] chunk;
+  private int position;
+
+  ChunkInputStream(ChunkQueue queue) {
+    this.queue = queue;
+  }
+
+  @Override
+  public int read() {
+    if (!fill())
+      return -1;
+    return chunk[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0)
+      return 0;
+    if (!fill())
+      return -1;
+
+    int read = Math.min(len, chunk.length - position);
+    System.arraycopy(chunk, position, b, off, read);
+    position += read;
+    return read;
+  }
+
+  @Override
+  public int available() {
+    return chunk == null ? 0 : chunk.length - position;
+  }
+
+  @Override
+  public void close() {
+    queue.close();
+  }
+
+  // waits for the next chunk if the current one was read completely,
+  // returns false at the end of the stream
+  private boolean fill() {
+    while (chunk == null || position == chunk.length) {
+      chunk = queue.take();
+      position = 0;
+      if (chunk == null)
+        return false;
+    }
+    return true;
+  }
+}
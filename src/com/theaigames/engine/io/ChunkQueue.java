@@ -0,0 +1,89 @@
+package com.theaigames.engine.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free queue of byte chunks between exactly one producer and one
+ * consumer thread. A side that can not go on parks until the other one has
+ * put or taken a chunk, or the queue was closed.
+ */
+class ChunkQueue {
+  private final byte[][] slots;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong(); // next chunk to take
+  private final AtomicLong tail = new AtomicLong(); // next slot to put a chunk in
+  private volatile Thread waitingProducer;
+  private volatile Thread waitingConsumer;
+  private volatile boolean closed;
+
+  /**
+   * @param capacity : maximum number of chunks in the queue, a power of two
+   */
+  ChunkQueue(int capacity) {
+    if (Integer.bitCount(capacity) != 1)
+      throw new IllegalArgumentException("Capacity has to be a power of two.");
+    slots = new byte[capacity][];
+    mask = capacity - 1;
+  }
+
+  /**
+   * Puts a chunk in the queue, waits while it is full
+   *
+   * @return : false if the queue was closed
+   */
+  boolean put(byte[] chunk) {
+    while (true) {
+      if (closed)
+        return false;
+
+      long t = tail.get();
+      if (t - head.get() < slots.length) {
+        slots[(int) t & mask] = chunk;
+        tail.set(t + 1);
+        LockSupport.unpark(waitingConsumer);
+        return true;
+      }
+
+      waitingProducer = Thread.currentThread();
+      if (t - head.get() >= slots.length && !closed)
+        LockSupport.park(this);
+      waitingProducer = null;
+    }
+  }
+
+  /**
+   * Takes the next chunk from the queue, waits while it is empty
+   *
+   * @return : the chunk, null if the queue was closed and is empty
+   */
+  byte[] take() {
+    while (true) {
+      long h = head.get();
+      if (h < tail.get()) {
+        int slot = (int) h & mask;
+        byte[] chunk = slots[slot];
+        slots[slot] = null;
+        head.set(h + 1);
+        LockSupport.unpark(waitingProducer);
+        return chunk;
+      }
+      if (closed)
+        return null;
+
+      waitingConsumer = Thread.currentThread();
+      if (h == tail.get() && !closed)
+        LockSupport.park(this);
+      waitingConsumer = null;
+    }
+  }
+
+  /**
+   * Closes the queue, chunks that are in it can still be taken
+   */
+  void close() {
+    closed = true;
+    LockSupport.unpark(waitingProducer);
+    LockSupport.unpark(waitingConsumer);
+  }
+}
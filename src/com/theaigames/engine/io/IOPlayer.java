@@ -17,8 +17,9 @@
 
 package com.theaigames.engine.io;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 
 /**
  * IOPlayer class
@@ -30,9 +31,9 @@ import java.io.OutputStreamWriter;
 public class IOPlayer implements IOPlayerable {
 
     private Process process;
-    private OutputStreamWriter inputStream;
-    private InputStreamGobbler outputGobbler;
-    private InputStreamGobbler errorGobbler;
+    private BufferedOutputStream inputStream;
+    private BotStreamReader outputGobbler;
+    private BotStreamReader errorGobbler;
     private StringBuilder dump;
     private int errorCounter;
     private boolean finished;
@@ -41,17 +42,31 @@ public class IOPlayer implements IOPlayerable {
     private final int MAX_ERRORS = 2;
     private final String NULL_MOVE = "no_moves";
     
-    public String response;
+    private ResponseHandoff response;
     
     public IOPlayer(Process process, String idString) {
-        this.inputStream = new OutputStreamWriter(process.getOutputStream());
-    	this.outputGobbler = new InputStreamGobbler(process.getInputStream(), this, "output");
-    	this.errorGobbler = new InputStreamGobbler(process.getErrorStream(), this, "error");
+        this(process, idString, null);
+    }
+    
+    /**
+     * @param multiplexer : reads the bot's output on its event loops, if null
+     * the bot gets reader threads of its own
+     */
+    public IOPlayer(Process process, String idString, StreamMultiplexer multiplexer) {
+        this.inputStream = new BufferedOutputStream(process.getOutputStream(), 16 * 1024);
+        if (multiplexer == null) {
+        	this.outputGobbler = new InputStreamGobbler(process.getInputStream(), this, "output");
+        	this.errorGobbler = new InputStreamGobbler(process.getErrorStream(), this, "error");
+        } else {
+        	this.outputGobbler = new MultiplexedReader(process.getInputStream(), process, this, "output", multiplexer);
+        	this.errorGobbler = new MultiplexedReader(process.getErrorStream(), process, this, "error", multiplexer);
+        }
         this.process = process;
         this.idString = idString;
         this.dump = new StringBuilder();
         this.errorCounter = 0;
         this.finished = false;
+        this.response = new ResponseHandoff();
     }
     
     /**
@@ -60,10 +75,21 @@ public class IOPlayer implements IOPlayerable {
      * @throws IOException
      */
     public void writeToBot(String line) throws IOException {
+        queueToBot(line);
+        flushToBot();
+    }
+    
+    /**
+     * Write a string to the bot without flushing, it is sent
+     * together with everything else on the next flush
+     * @param line : input string
+     * @throws IOException
+     */
+    public void queueToBot(String line) throws IOException {
         if (!this.finished) {
             try {
-        		this.inputStream.write(line + "\n");
-        		this.inputStream.flush();
+        		this.inputStream.write(line.getBytes(StandardCharsets.UTF_8));
+        		this.inputStream.write('\n');
             } catch(IOException e) {
                 System.err.println("Writing to bot failed");
             }
@@ -72,44 +98,66 @@ public class IOPlayer implements IOPlayerable {
     }
     
     /**
-     * Wait's until the this.response has a value and then returns that value
+     * Write already encoded lines to the bot without flushing
+     * @param lines : ASCII encoded lines, each ending with a newline
+     * @param offset : start of the lines in given array
+     * @param length : number of bytes to write
+     * @throws IOException
+     */
+    public void queueToBot(byte[] lines, int offset, int length) throws IOException {
+        if (!this.finished) {
+            try {
+        		this.inputStream.write(lines, offset, length);
+            } catch(IOException e) {
+                System.err.println("Writing to bot failed");
+            }
+            dump.append(new String(lines, offset, length, StandardCharsets.US_ASCII));
+        }
+    }
+    
+    /**
+     * Sends everything that was queued to the bot
+     * @throws IOException
+     */
+    public void flushToBot() throws IOException {
+        if (!this.finished) {
+            this.outputGobbler.expectLine();
+            try {
+        		this.inputStream.flush();
+            } catch(IOException e) {
+                System.err.println("Writing to bot failed");
+            }
+        }
+    }
+    
+    /**
+     * Waits until the bot returns a response or the time runs out and then returns the response
      * @param timeOut : time before timeout
      * @return : bot's response, returns and empty string when there is no response
      */
     public String getResponse(long timeOut) {
-    	long timeStart = System.currentTimeMillis();
     	String enginesays = "Output from your bot: ";
-    	String response;
 		
     	if (this.errorCounter > this.MAX_ERRORS) {
     		addToDump(String.format("Maximum number (%d) of time-outs reached: skipping all moves.", this.MAX_ERRORS));
     		return "";
     	}
     	
-    	while(this.response == null) {
-    		long timeNow = System.currentTimeMillis();
-			long timeElapsed = timeNow - timeStart;
-			
-			if(timeElapsed >= timeOut) {
-				addToDump(String.format("Response timed out (%dms), let your bot return '%s' instead of nothing or make it faster.", timeOut, this.NULL_MOVE));
-				this.errorCounter++;
-                if (this.errorCounter > this.MAX_ERRORS) {
-                    finish();
-                }
-                addToDump(String.format("%snull", enginesays));
-				return "";
-			}
-			
-			try { Thread.sleep(2); } catch (InterruptedException e) {}
-    	}
-		if(this.response.equalsIgnoreCase("no_moves")) {
-			this.response = null;
+    	String response = this.response.take(timeOut);
+    	
+		if(response == null) {
+			addToDump(String.format("Response timed out (%dms), let your bot return '%s' instead of nothing or make it faster.", timeOut, this.NULL_MOVE));
+			this.errorCounter++;
+            if (this.errorCounter > this.MAX_ERRORS) {
+                finish();
+            }
+            addToDump(String.format("%snull", enginesays));
+			return "";
+		}
+		if(response.equalsIgnoreCase("no_moves")) {
             addToDump(String.format("%s\"%s\"", enginesays, this.NULL_MOVE));
 			return "";
 		}
-		
-		response = this.response;
-		this.response = null;
 
 		addToDump(String.format("%s\"%s\"", enginesays, response));
 		return response;
@@ -194,7 +242,14 @@ public class IOPlayer implements IOPlayerable {
         this.errorGobbler.start();
     }
 
+    /**
+     * @return : System.nanoTime() at which the last response returned by getResponse() arrived, or timed out
+     */
+    public long getResponseTime() {
+      return this.response.getReceivedAt();
+    }
+
     public void setResponse(String response) {
-      this.response = response;
+      this.response.put(response);
     }
 }
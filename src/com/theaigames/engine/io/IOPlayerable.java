@@ -13,8 +13,12 @@ import java.io.IOException;
  */
 public interface IOPlayerable extends Runnable {
   void writeToBot(String line) throws IOException;
+  void queueToBot(String line) throws IOException;
+  void queueToBot(byte[] lines, int offset, int length) throws IOException;
+  void flushToBot() throws IOException;
   void outputEngineWarning(String warning);
   String getResponse(long timeOut);
+  long getResponseTime();
   void setResponse(String response);
 
   String getStdout();
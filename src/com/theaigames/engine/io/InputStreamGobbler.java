@@ -32,7 +32,7 @@ import java.io.InputStreamReader;
  * 
  * @author Jackie Xu <jackie@starapple.nl>, Jim van Eeden <jim@starapple.nl>
  */
-public class InputStreamGobbler extends Thread {
+public class InputStreamGobbler extends Thread implements BotStreamReader {
 	
 	private InputStream inputStream;
 	private IOPlayerable player;
@@ -0,0 +1,90 @@
+package com.theaigames.engine.io;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Splits the bytes a bot outputs into lines and hands them to the player,
+ * with the same filtering as the {@link InputStreamGobbler}. Bytes can be
+ * passed in pieces of any size, a line is complete once its newline arrives.
+ */
+class LineCollector {
+  private static final int MAX_DATA = 1000000; // catches bots that return way too much (infinite loop)
+
+  private final IOPlayerable player;
+  private final String type;
+  private final StringBuffer buffer;
+  private byte[] line;
+  private int lineLength;
+  private volatile long lineCount; // written by the reading thread only
+
+  /**
+   * @param player : player to set the responses of
+   * @param type : "output" if the lines are responses, anything else if they are only stored
+   */
+  LineCollector(IOPlayerable player, String type) {
+    this.player = player;
+    this.type = type;
+    this.buffer = new StringBuffer();
+    this.line = new byte[128];
+    this.lineLength = 0;
+  }
+
+  /**
+   * Adds bytes the bot output
+   */
+  void consume(byte[] bytes, int offset, int length) {
+    for (int i = offset; i < offset + length; i++)
+      consume(bytes[i]);
+  }
+
+  /**
+   * Adds one byte the bot output
+   */
+  void consume(int b) {
+    if (b == '\n') {
+      emitLine();
+    } else if (lineLength < MAX_DATA) {
+      if (lineLength == line.length)
+        line = Arrays.copyOf(line, line.length * 2);
+      line[lineLength++] = (byte) b;
+    }
+  }
+
+  /**
+   * Handles the end of the output, an unfinished last line counts as well
+   */
+  void finish() {
+    if (lineLength > 0)
+      emitLine();
+  }
+
+  /**
+   * @return : all the lines collected so far
+   */
+  String getData() {
+    return buffer.toString();
+  }
+
+  /**
+   * @return : number of lines that were completed so far
+   */
+  long getLineCount() {
+    return lineCount;
+  }
+
+  private void emitLine() {
+    int length = lineLength;
+    if (length > 0 && line[length - 1] == '\r')
+      length--;
+    lineLength = 0;
+    lineCount++;
+
+    String lastLine = new String(line, 0, length, Charset.defaultCharset());
+    if (!lastLine.contains("VM warning") && buffer.length() < MAX_DATA) {
+      if (type.equals("output"))
+        player.setResponse(lastLine);
+      buffer.append(lastLine + "\n");
+    }
+  }
+}
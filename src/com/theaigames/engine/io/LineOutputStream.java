@@ -0,0 +1,36 @@
+package com.theaigames.engine.io;
+
+import java.io.OutputStream;
+
+/**
+ * Stream a threaded bot writes its output to. The lines go straight to the
+ * player's {@link LineCollector}, on the bot's own thread.
+ */
+class LineOutputStream extends OutputStream {
+  private final LineCollector lines;
+  private boolean closed;
+
+  LineOutputStream(LineCollector lines) {
+    this.lines = lines;
+  }
+
+  @Override
+  public void write(int b) {
+    if (!closed)
+      lines.consume(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    if (!closed)
+      lines.consume(b, off, len);
+  }
+
+  @Override
+  public void close() {
+    if (closed)
+      return;
+    closed = true;
+    lines.finish();
+  }
+}
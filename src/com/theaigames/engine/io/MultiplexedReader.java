@@ -0,0 +1,117 @@
+package com.theaigames.engine.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a bot process stream on one of the threads of a
+ * {@link StreamMultiplexer} instead of a thread of its own.
+ *
+ * Only the bytes that are available are read, so polling never blocks. They
+ * are split into lines incrementally by a {@link LineCollector}.
+ */
+class MultiplexedReader implements BotStreamReader {
+  private final InputStream inputStream;
+  private final Process process;
+  private final StreamMultiplexer multiplexer;
+  private final LineCollector lines;
+  private volatile StreamMultiplexer.EventLoop loop;
+  private volatile long expectedLines; // line count at which the expected line has arrived
+  private volatile boolean finished;
+
+  MultiplexedReader(InputStream inputStream, Process process, IOPlayerable player, String type,
+      StreamMultiplexer multiplexer) {
+    this.inputStream = inputStream;
+    this.process = process;
+    this.multiplexer = multiplexer;
+    this.lines = new LineCollector(player, type);
+    this.expectedLines = 0;
+    this.finished = false;
+  }
+
+  @Override
+  public void start() {
+    multiplexer.register(this);
+  }
+
+  @Override
+  public void finish() {
+    finished = true;
+    wakeLoop();
+  }
+
+  @Override
+  public String getData() {
+    return lines.getData();
+  }
+
+  @Override
+  public void expectLine() {
+    expectedLines = lines.getLineCount() + 1;
+    wakeLoop();
+  }
+
+  void setLoop(StreamMultiplexer.EventLoop loop) {
+    this.loop = loop;
+  }
+
+  private void wakeLoop() {
+    StreamMultiplexer.EventLoop loop = this.loop;
+    if (loop != null)
+      loop.wake();
+  }
+
+  /**
+   * @return : true if the bot owes a line since the last call to expectLine()
+   */
+  boolean isExpectingLine() {
+    return lines.getLineCount() < expectedLines;
+  }
+
+  boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Reads what the stream has available, called by the event loop thread
+   *
+   * @param scratch : buffer to read into
+   * @return : number of bytes read, -1 if the stream is done and can be dropped
+   */
+  int poll(byte[] scratch) {
+    if (finished)
+      return -1;
+
+    try {
+      // there is no way to see the end of a pipe without blocking, a child
+      // of the process can still hold it open. So the stream ends once the
+      // process is gone and everything it wrote before was read. Checked
+      // before available(), so nothing written right before it ended is lost.
+      boolean alive = process.isAlive();
+
+      int available = inputStream.available();
+      if (available > 0) {
+        int read = inputStream.read(scratch, 0, Math.min(available, scratch.length));
+        lines.consume(scratch, 0, read);
+        return read;
+      }
+
+      if (!alive) {
+        endOfStream();
+        return -1;
+      }
+      return 0;
+    } catch (IOException e) {
+      endOfStream();
+      return -1;
+    }
+  }
+
+  private void endOfStream() {
+    expectedLines = 0;
+    lines.finish();
+    try {
+      inputStream.close();
+    } catch (IOException e) {}
+  }
+}
@@ -0,0 +1,81 @@
+package com.theaigames.engine.io;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands the lines a bot outputs over to the engine thread waiting for its
+ * response. Only the latest line is kept, just like the response field that
+ * used to be polled.
+ *
+ * The waiting thread is woken up as soon as a line arrives.
+ */
+public class ResponseHandoff {
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition arrived = lock.newCondition();
+  private String response;
+  private long receivedAt;
+  private long takenReceivedAt;
+
+  /**
+   * Sets the response and wakes up the waiting thread
+   *
+   * @param response : line the bot returned
+   */
+  public void put(String response) {
+    lock.lock();
+    try {
+      this.response = response;
+      this.receivedAt = System.nanoTime();
+      arrived.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until a response is available and takes it
+   *
+   * @param timeOut : maximum time to wait in milliseconds
+   * @return : the response, null if there was none in time
+   */
+  public String take(long timeOut) {
+    long remaining = TimeUnit.MILLISECONDS.toNanos(timeOut);
+
+    lock.lock();
+    try {
+      while (response == null) {
+        if (remaining <= 0) {
+          takenReceivedAt = System.nanoTime();
+          return null;
+        }
+        remaining = arrived.awaitNanos(remaining);
+      }
+
+      String taken = response;
+      response = null;
+      takenReceivedAt = receivedAt;
+      return taken;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      takenReceivedAt = System.nanoTime();
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return : {@link System#nanoTime()} at which the response last returned by
+   * {@link #take(long)} arrived, or at which it gave up waiting
+   */
+  public long getReceivedAt() {
+    lock.lock();
+    try {
+      return takenReceivedAt;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.theaigames.engine.io;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the output streams of many bot processes from a small pool of event
+ * loop threads, instead of two reader threads per bot.
+ *
+ * Process pipes can not be registered with a {@link java.nio.channels.Selector},
+ * so the loops have to poll. To keep that cheap, a loop only polls often for
+ * the streams that owe the engine a response (see
+ * {@link MultiplexedReader#expectLine()}), backing off from
+ * {@link #MIN_WAIT_NANOS} to {@link #MAX_WAIT_NANOS} while they are quiet.
+ * All other streams, like the standard errors, are read every
+ * {@link #IDLE_NANOS}. A loop without streams parks until one is registered
+ * and its thread ends once its last stream is removed, so an unused
+ * multiplexer costs nothing.
+ */
+public class StreamMultiplexer {
+  private static final long MIN_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(5);
+  private static final long MAX_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private static StreamMultiplexer shared;
+
+  private final EventLoop[] loops;
+  private final AtomicInteger next;
+  private volatile boolean shutdown;
+
+  /**
+   * @param threads : maximum number of event loop threads, they are only
+   * started while there are streams to read
+   */
+  public StreamMultiplexer(int threads) {
+    if (threads < 1)
+      throw new IllegalArgumentException("A multiplexer needs at least one thread.");
+
+    loops = new EventLoop[threads];
+    next = new AtomicInteger();
+    for (int i = 0; i < threads; i++)
+      loops[i] = new EventLoop("stream-multiplexer-" + i);
+  }
+
+  /**
+   * @return : the multiplexer shared by all engines of this VM, with up to
+   * one thread per available processor
+   */
+  public static synchronized StreamMultiplexer getShared() {
+    if (shared == null)
+      shared = new StreamMultiplexer(Runtime.getRuntime().availableProcessors());
+    return shared;
+  }
+
+  /**
+   * Starts reading given stream on one of the event loops
+   */
+  void register(MultiplexedReader reader) {
+    if (shutdown)
+      throw new IllegalStateException("The multiplexer was shut down.");
+    loops[Math.floorMod(next.getAndIncrement(), loops.length)].register(reader);
+  }
+
+  /**
+   * Stops all event loops, registered streams are not read anymore
+   */
+  public void shutdown() {
+    shutdown = true;
+    for (EventLoop loop : loops)
+      loop.wake();
+  }
+
+  class EventLoop implements Runnable {
+    private final String name;
+    private final Queue<MultiplexedReader> added = new ConcurrentLinkedQueue<>();
+    private final ArrayList<MultiplexedReader> readers = new ArrayList<>();
+    private final AtomicBoolean active = new AtomicBoolean(false);
+    private volatile Thread thread;
+
+    EventLoop(String name) {
+      this.name = name;
+    }
+
+    void register(MultiplexedReader reader) {
+      reader.setLoop(this);
+      added.add(reader);
+      if (active.compareAndSet(false, true))
+        start();
+      else
+        wake();
+    }
+
+    /**
+     * Makes the loop look at its streams right away
+     */
+    void wake() {
+      Thread thread = this.thread;
+      if (thread != null)
+        LockSupport.unpark(thread);
+    }
+
+    private void start() {
+      Thread thread = new Thread(this, name);
+      thread.setDaemon(true);
+      this.thread = thread;
+      thread.start();
+    }
+
+    @Override
+    public void run() {
+      byte[] scratch = new byte[8 * 1024];
+      long wait = MIN_WAIT_NANOS;
+      long lastIdlePoll = 0;
+
+      while (!shutdown) {
+        MultiplexedReader reader;
+        while ((reader = added.poll()) != null)
+          readers.add(reader);
+
+        if (readers.isEmpty()) {
+          // the thread ends, unless a stream was registered in the meantime
+          active.set(false);
+          if (added.isEmpty() || !active.compareAndSet(false, true))
+            return;
+          continue;
+        }
+
+        // the streams that owe a response every time, the others now and then
+        long now = System.nanoTime();
+        boolean all = now - lastIdlePoll >= IDLE_NANOS;
+        if (all)
+          lastIdlePoll = now;
+
+        boolean expecting = false;
+        boolean progress = false;
+        for (Iterator<MultiplexedReader> it = readers.iterator(); it.hasNext();) {
+          reader = it.next();
+          if (!all && !reader.isExpectingLine() && !reader.isFinished())
+            continue;
+
+          int read = reader.poll(scratch);
+          if (read < 0) {
+            it.remove();
+            continue;
+          }
+          if (read > 0)
+            progress = true;
+          if (reader.isExpectingLine())
+            expecting = true;
+        }
+
+        if (!expecting) {
+          LockSupport.parkNanos(this, IDLE_NANOS);
+          wait = MIN_WAIT_NANOS;
+        } else if (progress) {
+          wait = MIN_WAIT_NANOS;
+        } else {
+          LockSupport.parkNanos(this, wait);
+          wait = Math.min(wait * 2, MAX_WAIT_NANOS);
+        }
+      }
+    }
+  }
+}
@@ -3,56 +3,61 @@ package com.theaigames.engine.io;
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Implementation of an IO Player which uses threads instead of processes.
  *
+ * Lines to the bot are handed over in memory as one chunk per flush, the
+ * lines the bot prints are split and set as response on its own thread.
+ * Both only block through {@link java.util.concurrent.locks.LockSupport},
+ * so the bot can run on a virtual thread as well.
+ *
  * @author Matthias Neugebauer
  */
 public class ThreadedIOPlayer implements IOPlayerable {
   private final static int MAX_ERRORS = 2;
   private final static String NULL_MOVE = "no_moves";
-  public String response;
+  private final static int QUEUED_CHUNKS = 64;
+  private final ResponseHandoff response = new ResponseHandoff();
   private Thread thread = new Thread();
-  private OutputStreamWriter inputStream;
-  private InputStreamGobbler outputGobbler;
-  //private InputStreamGobbler errorGobbler;
+  private final ChunkQueue inputQueue = new ChunkQueue(QUEUED_CHUNKS);
+  private final ByteArrayOutputStream queued = new ByteArrayOutputStream(16 * 1024);
+  private final LineCollector output = new LineCollector(this, "output");
   private String idString;
   private StringBuilder dump = new StringBuilder();
   private int errorCounter = 0;
   private boolean finished = false;
 
   public ThreadedIOPlayer(Method mainMethod, String idString) throws IOException {
+    this(mainMethod, idString, Thread::new);
+  }
+
+  /**
+   * @param threadFactory : creates the thread the bot's main method runs on
+   */
+  public ThreadedIOPlayer(Method mainMethod, String idString, ThreadFactory threadFactory) throws IOException {
     this.idString = idString;
 
     // Connect output stream
-    PipedOutputStream outOs = new PipedOutputStream();
-    PipedInputStream outIs = new PipedInputStream(outOs);
-    this.outputGobbler = new InputStreamGobbler(outIs, this, "output");
-
-    // Connect error stream
-    //PipedOutputStream errOs = new PipedOutputStream();
-    //PipedInputStream errIs = new PipedInputStream(errOs);
-    //this.errorGobbler = new InputStreamGobbler(errIs, this, "error");
+    OutputStream outOs = new LineOutputStream(output);
 
     // Connect input stream
-    PipedOutputStream inOs = new PipedOutputStream();
-    PipedInputStream inIs = new PipedInputStream(inOs);
-    this.inputStream = new OutputStreamWriter(inOs);
+    InputStream inIs = new ChunkInputStream(inputQueue);
 
     // Create new Thread
     Runnable r = () -> {
       // Set streams as std
       ThreadedPrintStream.setThreadLocalSystemOut(new PrintStream(outOs));
-      //ThreadedPrintStream.setThreadLocalSystemErr(new PrintStream(errOs));
       ThreadedInputStream.setThreadLocalSystemIn(inIs);
 
       // Run Bot
       try {
         mainMethod.invoke(null, (Object) new String[0]);
       } catch (InvocationTargetException e) {
-        // Don't blow up when the thread was killed
-        if (!(finished && e.getTargetException() instanceof ThreadDeath))
+        // Don't blow up when the thread was killed or its input ended
+        if (!finished)
           e.printStackTrace();
       } catch (Exception e) {
         e.printStackTrace();
@@ -60,13 +65,12 @@ public class ThreadedIOPlayer implements IOPlayerable {
 
       try {
         outOs.close();
-        //errOs.close();
         inIs.close();
       } catch (Exception e) {
       }
     };
 
-    this.thread = new Thread(r);
+    this.thread = threadFactory.newThread(r);
   }
 
   /**
@@ -76,60 +80,80 @@ public class ThreadedIOPlayer implements IOPlayerable {
    * @throws IOException
    */
   public void writeToBot(String line) throws IOException {
+    queueToBot(line);
+    flushToBot();
+  }
+
+  /**
+   * Write a string to the bot without flushing, it is sent together with
+   * everything else on the next flush
+   *
+   * @param line : input string
+   * @throws IOException
+   */
+  public void queueToBot(String line) throws IOException {
     if (finished) return;
-    try {
-      inputStream.write(line + "\n");
-      inputStream.flush();
-    } catch (IOException e) {
-      System.err.println("Writing to bot failed");
-    }
+    queued.write(line.getBytes(StandardCharsets.UTF_8));
+    queued.write('\n');
     addToDump(line);
   }
 
   /**
-   * Wait's until the response has a value and then returns that value
+   * Write already encoded lines to the bot without flushing
+   *
+   * @param lines  : ASCII encoded lines, each ending with a newline
+   * @param offset : start of the lines in given array
+   * @param length : number of bytes to write
+   * @throws IOException
+   */
+  public void queueToBot(byte[] lines, int offset, int length) throws IOException {
+    if (finished) return;
+    queued.write(lines, offset, length);
+    dump.append(new String(lines, offset, length, StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Sends everything that was queued to the bot
+   *
+   * @throws IOException
+   */
+  public void flushToBot() throws IOException {
+    if (finished || queued.size() == 0) return;
+    if (!inputQueue.put(queued.toByteArray()))
+      System.err.println("Writing to bot failed");
+    queued.reset();
+  }
+
+  /**
+   * Waits until the bot returns a response or the time runs out and then returns the response
    *
    * @param timeOut : time before timeout
    * @return : bot's response, returns and empty string when there is no response
    */
   public String getResponse(long timeOut) {
-    long timeStart = System.currentTimeMillis();
     String enginesays = "Output from your bot: ";
-    String response;
 
     if (errorCounter > MAX_ERRORS) {
       addToDump(String.format("Maximum number (%d) of time-outs reached: skipping all moves.", MAX_ERRORS));
       return "";
     }
 
-    while (this.response == null) {
-      long timeNow = System.currentTimeMillis();
-      long timeElapsed = timeNow - timeStart;
-
-      if (timeElapsed >= timeOut) {
-        addToDump(String.format("Response timed out (%dms), let your bot return '%s' instead of nothing or make it faster.", timeOut, NULL_MOVE));
-        errorCounter++;
-        if (errorCounter > MAX_ERRORS)
-          finish();
-        addToDump(String.format("%snull", enginesays));
-        return "";
-      }
+    String response = this.response.take(timeOut);
 
-      try {
-        Thread.sleep(2);
-      } catch (InterruptedException e) {
-      }
+    if (response == null) {
+      addToDump(String.format("Response timed out (%dms), let your bot return '%s' instead of nothing or make it faster.", timeOut, NULL_MOVE));
+      errorCounter++;
+      if (errorCounter > MAX_ERRORS)
+        finish();
+      addToDump(String.format("%snull", enginesays));
+      return "";
     }
 
-    if (this.response.equalsIgnoreCase("no_moves")) {
-      this.response = null;
+    if (response.equalsIgnoreCase("no_moves")) {
       addToDump(String.format("%s\"%s\"", enginesays, NULL_MOVE));
       return "";
     }
 
-    response = this.response;
-    this.response = null;
-
     addToDump(String.format("%s\"%s\"", enginesays, response));
     return response;
   }
@@ -144,15 +168,16 @@ public class ThreadedIOPlayer implements IOPlayerable {
 
     // we cannot set a finish variable but we also have not synchronized blocks.
     // #stop should be fine :)
-    thread.stop();
-
-    // stop the bot's IO
     try {
-      inputStream.close();
-    } catch (IOException e) {
+      thread.stop();
+    } catch (UnsupportedOperationException e) {
+      // virtual threads (and all threads on newer VMs) can not be stopped,
+      // wake the bot up instead, its input ends below
+      thread.interrupt();
     }
-    outputGobbler.finish();
-    //errorGobbler.finish();
+
+    // stop the bot's IO
+    inputQueue.close();
   }
 
   /**
@@ -184,7 +209,7 @@ public class ThreadedIOPlayer implements IOPlayerable {
    * @return : the complete stdOut from the bot process
    */
   public String getStdout() {
-    return outputGobbler.getData();
+    return output.getData();
   }
 
   /**
@@ -207,12 +232,17 @@ public class ThreadedIOPlayer implements IOPlayerable {
    * Start the communication with the bot
    */
   public void run() {
-    outputGobbler.start();
-    //errorGobbler.start();
     thread.start();
   }
 
+  /**
+   * @return : System.nanoTime() at which the last response returned by getResponse() arrived, or timed out
+   */
+  public long getResponseTime() {
+    return response.getReceivedAt();
+  }
+
   public void setResponse(String response) {
-    this.response = response;
+    this.response.put(response);
   }
 }
@@ -46,6 +46,8 @@ public abstract class AbstractGame implements Logic {
 	public boolean DEV_MODE = false; // turn this on for local testing
 	public String TEST_BOT; // command for the test bot in DEV_MODE
 	public int NUM_TEST_BOTS; // number of bots for this game
+	public boolean EXIT_ON_FINISH = true; // turn this off to run games inside another application
+	public boolean VERBOSE = true; // turn this off to not print the progress of the game, like when many games run at once
 	
 	public AbstractGame() {
 		maxRounds = -1; // set this later if there is a maximum amount of rounds for this game
@@ -61,6 +63,7 @@ public abstract class AbstractGame implements Logic {
 		
 		// create engine
 		this.engine = new Engine();
+		this.engine.setVerbose(VERBOSE);
 		
 		// add the test bots if in DEV_MODE
 		if(DEV_MODE) {
@@ -133,7 +136,7 @@ public abstract class AbstractGame implements Logic {
 	}
 	
 	/**
-	 * close the bot processes, save, exit program
+	 * close the bot processes, save, exit program (unless EXIT_ON_FINISH is off)
 	 */
 	@Override
 	public void finish() throws Exception
@@ -141,7 +144,8 @@ public abstract class AbstractGame implements Logic {
 		// stop the bots
 		for(IOPlayerable ioPlayer : this.engine.getPlayers())
 			ioPlayer.finish();
-		Thread.sleep(100);
+		if(EXIT_ON_FINISH)
+			Thread.sleep(100);
 		
 		if(DEV_MODE) { // print the game file when in DEV_MODE
 			String playedGame = this.processor.getPlayedGame();
@@ -154,9 +158,11 @@ public abstract class AbstractGame implements Logic {
 			}
 		}
 		
-		System.out.println("Done.");
+		if(VERBOSE)
+			System.out.println("Done.");
 		
-        System.exit(0);
+		if(EXIT_ON_FINISH)
+			System.exit(0);
 	}
 	
 	/**
@@ -18,6 +18,7 @@
 package com.theaigames.game.player;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import com.theaigames.engine.io.IOPlayerable;
 
@@ -40,6 +41,7 @@ public abstract class AbstractPlayer {
 	private long timeBank;
 	private long maxTimeBank;
 	private long timePerMove;
+	private long requestTime;
 	
 	public AbstractPlayer(String name, IOPlayerable bot, long maxTimeBank, long timePerMove) {
 		this.name = name;
@@ -69,7 +71,7 @@ public abstract class AbstractPlayer {
 	public IOPlayerable getBot() {
 		return bot;
 	}
-
+	
 	/**
 	 * Sets the time bank directly
 	 */
@@ -142,34 +144,81 @@ public abstract class AbstractPlayer {
 		sendLine(String.format("update game %s %d", type, value));
 	}
 	
+	/**
+	 * Sends lines that were encoded once for several players, without formatting them again
+	 * @param lines : ASCII encoded lines, each ending with a newline
+	 */
+	public void sendEncoded(byte[] lines) {
+		try {
+			this.bot.queueToBot(lines, 0, lines.length);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
 	/**
 	 * Asks the bot for given move type and returns the answer
 	 * @param moveType : type of move the bot has to return
 	 * @return : the bot's output
 	 */
 	public String requestMove(String moveType) {
-		long startTime = System.currentTimeMillis();
+		sendMoveRequest(moveType);
+		return receiveMove();
+	}
+	
+	/**
+	 * Asks the bot for given move type without waiting for the answer, so other
+	 * bots can be asked at the same time. The answer is collected with receiveMove().
+	 * @param moveType : type of move the bot has to return
+	 */
+	public void sendMoveRequest(String moveType) {
 		
-		// write the request to the bot
+		// write the request to the bot, together with everything sent since the last request
 		sendLine(String.format("action %s %d", moveType, this.timeBank));
-
-		// wait for the bot to return his response
-		String response = this.bot.getResponse(this.timeBank);
+		flush();
 		
-		// update the timebank
-		long timeElapsed = System.currentTimeMillis() - startTime;
-		updateTimeBank(timeElapsed);
+		// the bot's time starts once the request has been written
+		this.requestTime = System.nanoTime();
+	}
+	
+	/**
+	 * Waits for the answer to the last request and charges the time the bot took
+	 * to answer it to the time bank, no matter how long other bots were waited for first
+	 * @return : the bot's output
+	 */
+	public String receiveMove() {
+		
+		// wait for the bot to return his response, if there is time left
+		long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.requestTime);
+		String response = this.bot.getResponse(Math.max(this.timeBank - waited, 0));
+		
+		// update the timebank with the time until the response was received,
+		// it could have arrived before we started waiting
+		long timeElapsed = TimeUnit.NANOSECONDS.toMillis(this.bot.getResponseTime() - this.requestTime);
+		updateTimeBank(Math.max(timeElapsed, 0));
 		
 		return response;
 	}
 	
 	/**
-	 * Sends given string to bot
+	 * Sends everything that was sent to the player since the last flush to the bot at once.
+	 * Settings and updates are only queued, requestMove() flushes them together with the request.
+	 */
+	public void flush() {
+		try {
+			this.bot.flushToBot();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Queues given string for the bot
 	 * @param info
 	 */
 	private void sendLine(String content) {
 		try {
-			this.bot.writeToBot(content);
+			this.bot.queueToBot(content);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}